@@ -13,8 +13,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import static ca.jacob.jml.Util.calculateWeightedEntropy;
 import static ca.jacob.jml.Util.calculateOccurrences;
+import static ca.jacob.jml.Util.indices;
+import static ca.jacob.jml.math.Util.argsort;
 import static ca.jacob.jml.math.Util.log2;
 
 public class Dataset {
@@ -23,7 +24,7 @@ public class Dataset {
     public static final int CONTINUOUS = 1;
 
     private String name;
-    private double entropy;
+    private volatile double entropy; // read by every node grown from this dataset, possibly on other threads
     private Matrix x;
     private Vector attributeTypes;
     private Vector y;
@@ -53,6 +54,10 @@ public class Dataset {
         this.init(new Matrix(), new Vector(), attributeTypes);
     }
 
+    Dataset() {
+        this.entropy = -1;
+    }
+
     private void init(Matrix x, Vector y, int attributeType) {
         Vector dataTypes = new Vector(new int[x.colCount()]);
         dataTypes.fill(attributeType);
@@ -80,24 +85,66 @@ public class Dataset {
         return x.rowCount();
     }
 
-    public Map<Integer, Dataset> splitByClass() {
-        Map<Integer, Dataset> separated = new HashMap<Integer, Dataset>();
+    /**
+     * Weight of sample i, 1 unless the dataset was weighted with {@link #weighted(double[])}.
+     */
+    public double weight(int i) {
+        return 1;
+    }
 
-        for (int i = 0; i < x.rowCount(); i++) {
-            LOG.trace("checking row {}", i);
-            int value = y.intAt(i);
+    public boolean isWeighted() {
+        return false;
+    }
 
-            Dataset subset = separated.get(value);
-            if (subset == null) {
+    /**
+     * Sum of the weights of the samples, the sample count when the dataset is not weighted.
+     */
+    public double totalWeight() {
+        return sampleCount();
+    }
+
+    /**
+     * View of this dataset in which sample i has the given weight, see {@link DatasetView}. The entropy, the splits and
+     * the majority class of the view and of its subsets count every sample by its weight, as if it had been drawn that
+     * many times. A weight of 1 counts as one sample, which matters to {@link ca.jacob.jml.bayes.NaiveBayes}'s
+     * smoothing.
+     */
+    public Dataset weighted(double[] weights) {
+        checkWeights(weights, this.sampleCount());
+        DatasetView view = new DatasetView(x, y, attributeTypes, indices(sampleCount()), indices(attributeCount()), weights.clone());
+        view.setName(name);
+        return view;
+    }
+
+    public Map<Integer, Dataset> splitByClass() {
+        Map<Integer, int[]> counts = new HashMap<>();
+        for (int i = 0; i < this.sampleCount(); i++) {
+            int value = this.classValue(i);
+            int[] count = counts.get(value);
+            if (count == null) {
                 LOG.trace("adding new split based on value {}", value);
-                subset = new Dataset(this.attributeTypes);
-                separated.put(value, subset);
+                count = new int[1];
+                counts.put(value, count);
             }
+            count[0]++;
+        }
+
+        Map<Integer, int[]> rows = new HashMap<>();
+        for (Map.Entry<Integer, int[]> entry : counts.entrySet()) {
+            rows.put(entry.getKey(), new int[entry.getValue()[0]]);
+            entry.getValue()[0] = 0;
+        }
 
-            Vector v = this.sample(i);
-            subset.add(v);
+        for (int i = 0; i < this.sampleCount(); i++) {
+            int value = this.classValue(i);
+            int[] count = counts.get(value);
+            rows.get(value)[count[0]++] = i;
         }
 
+        Map<Integer, Dataset> separated = new HashMap<>();
+        for (Map.Entry<Integer, int[]> entry : rows.entrySet()) {
+            separated.put(entry.getKey(), this.samples(entry.getValue()));
+        }
         return separated;
     }
 
@@ -107,22 +154,35 @@ public class Dataset {
         }
 
         List<Integer> values = new ArrayList<>();
-        List<Dataset> subsets = new ArrayList<>();
-        for (int i = 0; i < x.rowCount(); i++) {
+        int[] subsetOf = new int[this.sampleCount()];
+        int[] counts = new int[this.sampleCount()];
+        for (int i = 0; i < this.sampleCount(); i++) {
             LOG.trace("checking row {}", i);
-            int value = x.intAt(i, attribute);
+            int value = (int) this.value(i, attribute);
 
             int index = values.indexOf(value);
             if (index < 0) {
                 LOG.trace("adding new split based on value {}", value);
                 values.add(value);
-                subsets.add(new Dataset(attributeTypes.clone()));
-                index = subsets.size()-1;
+                index = values.size()-1;
             }
-            Dataset subset = subsets.get(index);
+            subsetOf[i] = index;
+            counts[index]++;
+        }
+
+        int[][] rows = new int[values.size()][];
+        for (int k = 0; k < rows.length; k++) {
+            rows[k] = new int[counts[k]];
+            counts[k] = 0;
+        }
+        for (int i = 0; i < this.sampleCount(); i++) {
+            int k = subsetOf[i];
+            rows[k][counts[k]++] = i;
+        }
 
-            Vector v = this.sample(i);
-            subset.add(v);
+        List<Dataset> subsets = new ArrayList<>();
+        for (int[] subsetRows : rows) {
+            subsets.add(this.samples(subsetRows));
         }
         return new Tuple<>(values, subsets);
     }
@@ -132,28 +192,31 @@ public class Dataset {
             throw new DataException("must be continuous attribute");
         }
 
-        Vector c = x.col(attribute);
-        c.sort();
-
-        LOG.debug("splitting with attribute -> {}", c);
-
-        Tuple<Double, Tuple<Dataset, Dataset>> bestSubsets = null;
-        double minimumEntropy = 0;
-        for (int i = 0; i < c.length()-1; i++) {
-            if(c.at(i) == c.at(i+1)) {
-                continue;
-            }
-
-            double pivot = (c.at(i) + c.at(i+1)) / 2;
-            Tuple<Dataset, Dataset> subsets = splitAt(attribute, pivot);
+        double[] values = this.attribute(attribute).toArray();
+        int[] order = argsort(values);
+        int[] classes = this.classIndices();
+        int classCount = 0;
+        for(int k : classes) {
+            classCount = Math.max(classCount, k + 1);
+        }
 
-            double entropy = calculateWeightedEntropy(subsets);
-            if(bestSubsets == null || entropy < minimumEntropy) {
-                bestSubsets = new Tuple<>(pivot, subsets);
-                minimumEntropy = entropy;
+        ThresholdFinder finder;
+        if(this.isWeighted()) {
+            double[] weights = new double[this.sampleCount()];
+            for(int i = 0; i < weights.length; i++) {
+                weights[i] = this.weight(i);
             }
+            finder = new ThresholdFinder(classes, weights, classCount);
+        } else {
+            finder = new ThresholdFinder(classes, classCount);
         }
-        return bestSubsets;
+        Tuple<Double, Double> threshold = finder.find(values, order, 0, order.length);
+        if(threshold == null) {
+            return null;
+        }
+
+        LOG.debug("best pivot for attribute {} is {} with entropy {}", attribute, threshold.first(), threshold.last());
+        return new Tuple<>(threshold.first(), splitAt(attribute, threshold.first()));
     }
 
     public Tuple<Dataset, Dataset> splitAt(int attribute, double pivot) {
@@ -161,21 +224,28 @@ public class Dataset {
             throw new DataException("splitAt must use a continuous attribute");
         }
 
-        Dataset under = new Dataset(attributeTypes.clone());
-        Dataset over = new Dataset(attributeTypes.clone());
-        for (int i = 0; i < x.rowCount(); i++) {
-            double value = x.at(i, attribute);
+        int underCount = 0;
+        for (int i = 0; i < this.sampleCount(); i++) {
+            double value = this.value(i, attribute);
 
             if(value < pivot) {
-                under.add(this.sample(i));
-            } else if(value > pivot) {
-                over.add(this.sample(i));
-            } else {
+                underCount++;
+            } else if(value == pivot) {
                 throw new DataException("given value must not match value from attribute");
             }
         }
 
-        return new Tuple<>(under, over);
+        int[] under = new int[underCount];
+        int[] over = new int[this.sampleCount() - underCount];
+        for (int i = 0, u = 0, o = 0; i < this.sampleCount(); i++) {
+            if(this.value(i, attribute) < pivot) {
+                under[u++] = i;
+            } else {
+                over[o++] = i;
+            }
+        }
+
+        return new Tuple<>(this.samples(under), this.samples(over));
     }
 
     public void add(Vector sample) {
@@ -192,6 +262,10 @@ public class Dataset {
         return sample;
     }
 
+    public double value(int i, int j) {
+        return x.at(i, j);
+    }
+
     public int attributeCount() {
         return x.colCount();
     }
@@ -204,12 +278,61 @@ public class Dataset {
         return y.clone();
     }
 
+    /**
+     * Sorted distinct class values.
+     */
+    public Vector uniqueClasses() {
+        Vector unique = new Vector();
+        for(int value : calculateOccurrences(this.classes()).keySet()) {
+            unique.add(value);
+        }
+        unique.sort();
+        return unique;
+    }
+
+    /**
+     * Class of every sample as an index into {@link #uniqueClasses()}.
+     */
+    public int[] classIndices() {
+        Vector unique = this.uniqueClasses();
+        Map<Integer, Integer> indices = new HashMap<>();
+        for(int k = 0; k < unique.length(); k++) {
+            indices.put(unique.intAt(k), k);
+        }
+
+        int[] classes = new int[this.sampleCount()];
+        for(int i = 0; i < classes.length; i++) {
+            classes[i] = indices.get(this.classValue(i));
+        }
+        return classes;
+    }
+
     public int attributeType(int j) {
         return attributeTypes.intAt(j);
     }
 
     public Dataset samples(Vector indices) {
-        return new Dataset(x.rows(indices), y.at(indices), attributeTypes.clone());
+        int[] rows = new int[indices.length()];
+        for(int i = 0; i < rows.length; i++) {
+            rows[i] = indices.intAt(i);
+        }
+        return this.samples(rows);
+    }
+
+    /**
+     * View of the given samples sharing this dataset's storage, see {@link DatasetView}.
+     */
+    public Dataset samples(int[] rows) {
+        return this.samples(rows, indices(attributeCount()));
+    }
+
+    /**
+     * View of the given samples restricted to the given attributes, see {@link DatasetView}.
+     */
+    public Dataset samples(int[] rows, int[] attributes) {
+        DatasetView view = new DatasetView(x, y, attributeTypes, rows, attributes);
+        view.setName(name);
+        return view;
     }
 
     public Matrix getX() {
@@ -230,11 +353,14 @@ public class Dataset {
     }
 
     public String dataToString() {
-        String toReturn = "\n";
-        for(int i = 0; i < x.rowCount(); i++) {
-            toReturn += x.row(i) + " -> " + y.at(i) + "\n";
+        StringBuilder toReturn = new StringBuilder("\n");
+        for(int i = 0; i < this.sampleCount(); i++) {
+            Vector sample = this.sample(i);
+            double classValue = sample.at(sample.length()-1);
+            sample.remove(sample.length()-1);
+            toReturn.append(sample).append(" -> ").append(classValue).append("\n");
         }
-        return toReturn;
+        return toReturn.toString();
     }
 
     public int classValue(int i) {
@@ -245,6 +371,10 @@ public class Dataset {
         this.name = name;
     }
 
+    String getName() {
+        return name;
+    }
+
     public void setY(Vector y) {
         this.y = y;
     }
@@ -256,10 +386,17 @@ public class Dataset {
 
     public double entropy() {
         // Have we already calculated entropy?
+        double entropy = this.entropy;
         if(entropy > 0) {
             return entropy;
         }
 
+        if(this.isWeighted()) {
+            entropy = this.weightedEntropy();
+            this.entropy = entropy;
+            return entropy;
+        }
+
         Map<Integer, Integer> classes = calculateOccurrences(this.classes());
         LOG.trace("there are {} different class", classes.size());
         LOG.debug("classes: {}", classes);
@@ -270,15 +407,79 @@ public class Dataset {
         }
         LOG.trace("sum is " + sum);
 
+        // Summed locally and published once so that another thread never reads a partial sum
         entropy = 0;
         for (int count : classes.values()) {
             entropy -= count / sum * log2(count / sum);
         }
 
+        this.entropy = entropy;
+        return entropy;
+    }
+
+    private double weightedEntropy() {
+        Map<Integer, double[]> classes = this.classWeights();
+        double sum = this.totalWeight();
+        if(sum == 0) {
+            return 0;
+        }
+
+        double entropy = 0;
+        for(double[] weight : classes.values()) {
+            if(weight[0] > 0) {
+                entropy -= weight[0] / sum * log2(weight[0] / sum);
+            }
+        }
         return entropy;
     }
 
+    /**
+     * Class with the largest total weight, the most frequent class when the dataset is not weighted. Ties are broken
+     * like {@link Vector#valueOfMaxOccurrence()}.
+     */
+    public int majorityClass() {
+        if(!this.isWeighted()) {
+            return this.classes().valueOfMaxOccurrence();
+        }
+
+        boolean first = true;
+        int majority = 0;
+        double max = 0;
+        for(Map.Entry<Integer, double[]> e : this.classWeights().entrySet()) {
+            if(first || e.getValue()[0] > max) {
+                first = false;
+                majority = e.getKey();
+                max = e.getValue()[0];
+            }
+        }
+        return majority;
+    }
+
+    private Map<Integer, double[]> classWeights() {
+        Map<Integer, double[]> classes = new HashMap<>();
+        for(int i = 0; i < this.sampleCount(); i++) {
+            double[] weight = classes.get(this.classValue(i));
+            if(weight == null) {
+                weight = new double[1];
+                classes.put(this.classValue(i), weight);
+            }
+            weight[0] += this.weight(i);
+        }
+        return classes;
+    }
+
     public void replaceClasses(Vector newClasses) {
         this.y = newClasses;
     }
+
+    static void checkWeights(double[] weights, int sampleCount) {
+        if(weights.length != sampleCount) {
+            throw new DataException("there must be one weight per sample");
+        }
+        for(double weight : weights) {
+            if(!(weight >= 0) || Double.isInfinite(weight)) {
+                throw new DataException("weights must be finite and non negative");
+            }
+        }
+    }
 }
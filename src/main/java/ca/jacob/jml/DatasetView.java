@@ -0,0 +1,196 @@
+package ca.jacob.jml;
+
+import ca.jacob.jml.exceptions.DataException;
+import ca.jacob.jml.math.Matrix;
+import ca.jacob.jml.math.Vector;
+
+/**
+ * Subset of a dataset that shares the parent's storage and only keeps the selected row ids and attribute columns.
+ * Splitting or sampling a view gives another view, so growing a tree or drawing a bootstrap sample allocates O(n)
+ * ints instead of copying the data.
+ *
+ * A view may also weigh its samples, see {@link Dataset#weighted(double[])}. The weights follow the samples into the
+ * views of its subsets.
+ *
+ * Samples cannot be added to a view and its classes cannot be replaced. The parent must not drop attributes or write
+ * to its matrix while views of it are in use. Reading a view, from any number of threads, changes neither the view
+ * nor its parent.
+ */
+public class DatasetView extends Dataset {
+    private final Matrix x;
+    private final Vector y;
+    private final Vector attributeTypes;
+    private final int[] rows;
+    private int[] columns;
+    private final double[] weights; // of every row of the view, or null
+    private final double totalWeight;
+
+    private Matrix view;
+
+    DatasetView(Matrix x, Vector y, Vector attributeTypes, int[] rows, int[] columns) {
+        this(x, y, attributeTypes, rows, columns, null);
+    }
+
+    DatasetView(Matrix x, Vector y, Vector attributeTypes, int[] rows, int[] columns, double[] weights) {
+        this.x = x;
+        this.y = y;
+        this.attributeTypes = attributeTypes;
+        this.rows = rows;
+        this.columns = columns;
+        this.weights = weights;
+        this.view = x.view(rows, columns);
+
+        double totalWeight = rows.length;
+        if(weights != null) {
+            totalWeight = 0;
+            for(double weight : weights) {
+                totalWeight += weight;
+            }
+        }
+        this.totalWeight = totalWeight;
+    }
+
+    @Override
+    public int sampleCount() {
+        return rows.length;
+    }
+
+    @Override
+    public double weight(int i) {
+        return weights == null ? 1 : weights[i];
+    }
+
+    @Override
+    public boolean isWeighted() {
+        return weights != null;
+    }
+
+    @Override
+    public double totalWeight() {
+        return totalWeight;
+    }
+
+    @Override
+    public Dataset weighted(double[] weights) {
+        checkWeights(weights, rows.length);
+        DatasetView view = new DatasetView(x, y, attributeTypes, rows, columns.clone(), weights.clone());
+        view.setName(this.getName());
+        return view;
+    }
+
+    @Override
+    public int attributeCount() {
+        return columns.length;
+    }
+
+    @Override
+    public double value(int i, int j) {
+        return x.at(rows[i], columns[j]);
+    }
+
+    @Override
+    public int classValue(int i) {
+        return y.intAt(rows[i]);
+    }
+
+    @Override
+    public int attributeType(int j) {
+        return attributeTypes.intAt(columns[j]);
+    }
+
+    @Override
+    public Vector sample(int i) {
+        double[] sample = new double[columns.length + 1];
+        for(int j = 0; j < columns.length; j++) {
+            sample[j] = x.at(rows[i], columns[j]);
+        }
+        sample[columns.length] = y.at(rows[i]);
+        return Vector.wrap(sample);
+    }
+
+    @Override
+    public Vector attribute(int j) {
+        double[] attribute = new double[rows.length];
+        for(int i = 0; i < rows.length; i++) {
+            attribute[i] = x.at(rows[i], columns[j]);
+        }
+        return Vector.wrap(attribute);
+    }
+
+    @Override
+    public Vector classes() {
+        double[] classes = new double[rows.length];
+        for(int i = 0; i < rows.length; i++) {
+            classes[i] = y.at(rows[i]);
+        }
+        return Vector.wrap(classes);
+    }
+
+    @Override
+    public Dataset samples(int[] rows, int[] attributes) {
+        int[] parentRows = new int[rows.length];
+        for(int i = 0; i < rows.length; i++) {
+            parentRows[i] = this.rows[rows[i]];
+        }
+        int[] parentColumns = new int[attributes.length];
+        for(int j = 0; j < attributes.length; j++) {
+            parentColumns[j] = this.columns[attributes[j]];
+        }
+        double[] weights = null;
+        if(this.weights != null) {
+            weights = new double[rows.length];
+            for(int i = 0; i < rows.length; i++) {
+                weights[i] = this.weights[rows[i]];
+            }
+        }
+        DatasetView view = new DatasetView(x, y, attributeTypes, parentRows, parentColumns, weights);
+        view.setName(this.getName());
+        return view;
+    }
+
+    @Override
+    public Matrix getX() {
+        return view;
+    }
+
+    @Override
+    public Vector getY() {
+        return this.classes();
+    }
+
+    @Override
+    public Vector getAttributeTypes() {
+        double[] types = new double[columns.length];
+        for(int j = 0; j < columns.length; j++) {
+            types[j] = attributeTypes.at(columns[j]);
+        }
+        return Vector.wrap(types);
+    }
+
+    @Override
+    public void dropAttribute(int attribute) {
+        int[] columns = new int[this.columns.length-1];
+        for(int j = 0, k = 0; j < this.columns.length; j++) {
+            if(j != attribute) {
+                columns[k++] = this.columns[j];
+            }
+        }
+        this.columns = columns;
+        this.view = x.view(rows, columns);
+    }
+
+    @Override
+    public void add(Vector sample) {
+        throw new DataException("samples cannot be added to a dataset view");
+    }
+
+    @Override
+    public void setY(Vector y) {
+        throw new DataException("classes of a dataset view cannot be replaced");
+    }
+
+    @Override
+    public void replaceClasses(Vector newClasses) {
+        throw new DataException("classes of a dataset view cannot be replaced");
+    }
+}
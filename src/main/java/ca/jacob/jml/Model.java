@@ -1,32 +1,124 @@
 package ca.jacob.jml;
 
+import ca.jacob.jml.exceptions.PredictionException;
 import ca.jacob.jml.math.Matrix;
 import ca.jacob.jml.math.Vector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static ca.jacob.jml.Util.error;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 public abstract class Model {
     private static final Logger LOG = LoggerFactory.getLogger(Model.class);
+    public static final int CHUNK_SIZE = 512;
+
+    private ForkJoinPool pool;
 
     public abstract int predict(Vector e);
 
     public Vector predict(Matrix x) {
-        Vector predictions = new Vector(new double[x.rowCount()]);
-        for(int i = 0; i < x.rowCount(); i++) {
-            predictions.set(i, predict(x.row(i)));
+        int[] predictions = new int[x.rowCount()];
+        predict(x, predictions);
+        return new Vector(predictions);
+    }
+
+    /**
+     * Writes the prediction of every row of x to predictions. Once a pool is set, rows are predicted in chunks of
+     * {@link #CHUNK_SIZE} on it.
+     */
+    public void predict(Matrix x, int[] predictions) {
+        if(predictions.length < x.rowCount()) {
+            throw new PredictionException("predictions must have room for every row");
+        }
+        run(new Batch(x, 0, x.rowCount(), predictions, null));
+    }
+
+    /**
+     * Writes the prediction of row i, for i from from to to-1, to predictions[offset + i - from]. Subclasses override
+     * this with a faster path over a block of rows. Disjoint blocks may be predicted concurrently.
+     */
+    protected void predict(Matrix x, int from, int to, int[] predictions, int offset) {
+        for(int i = from; i < to; i++) {
+            predictions[offset + i - from] = predict(x.row(i));
         }
-        return predictions;
     }
 
+    /**
+     * Percentage of the samples predicted correctly, counted chunk by chunk as they are predicted.
+     */
     public double accuracy(Dataset dataset) {
-        Matrix x = dataset.getX();
-        Vector y = dataset.getY();
-        Vector yHat = predict(x);
-        LOG.trace("yHat {}", yHat.subVector(0, 5));
-        Vector err = error(y, yHat);
-        LOG.debug("err -> {}", err);
-        return (1 - err.sum() / err.length()) * 100;
+        int n = dataset.sampleCount();
+        int correct = run(new Batch(dataset.getX(), 0, n, null, dataset));
+        LOG.debug("{} of {} samples predicted correctly", correct, n);
+        return (1 - (double) (n - correct) / n) * 100;
+    }
+
+    /**
+     * Pool on which batches of rows are predicted, or null, the default, to predict them serially. Only set a pool on
+     * a model whose {@link #predict(Vector)} is safe to call concurrently.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    private int run(Batch batch) {
+        if(pool == null) {
+            return batch.compute();
+        } else if(ForkJoinTask.getPool() == pool) {
+            return batch.invoke();
+        }
+        return pool.invoke(batch);
+    }
+
+    /**
+     * Predicts the rows from to to-1 by halving them down to chunks. With a dataset, the chunks are compared to its
+     * classes instead of being stored and the number of correct predictions is returned.
+     */
+    private class Batch extends RecursiveTask<Integer> {
+        private final Matrix x;
+        private final int from;
+        private final int to;
+        private final int[] predictions;
+        private final Dataset dataset;
+
+        private Batch(Matrix x, int from, int to, int[] predictions, Dataset dataset) {
+            this.x = x;
+            this.from = from;
+            this.to = to;
+            this.predictions = predictions;
+            this.dataset = dataset;
+        }
+
+        @Override
+        protected Integer compute() {
+            if(pool != null && to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                Batch under = new Batch(x, from, middle, predictions, dataset);
+                Batch over = new Batch(x, middle, to, predictions, dataset);
+                under.fork();
+                int correct = over.compute();
+                return correct + under.join();
+            }
+
+            if(dataset == null) {
+                predict(x, from, to, predictions, from);
+                return 0;
+            }
+
+            int correct = 0;
+            int[] chunk = new int[Math.min(to - from, CHUNK_SIZE)];
+            for(int start = from; start < to; start += chunk.length) {
+                int end = Math.min(start + chunk.length, to);
+                predict(x, start, end, chunk, 0);
+                for(int i = start; i < end; i++) {
+                    if(chunk[i - start] == dataset.classValue(i)) {
+                        correct++;
+                    }
+                }
+            }
+            return correct;
+        }
     }
 }
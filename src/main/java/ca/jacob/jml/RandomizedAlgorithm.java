@@ -0,0 +1,11 @@
+package ca.jacob.jml;
+
+import java.util.SplittableRandom;
+
+/**
+ * An algorithm that draws from a random generator while fitting. Ensembles hand every member its own generator, so
+ * that they can fit members concurrently and still be reproducible.
+ */
+public interface RandomizedAlgorithm extends Algorithm {
+    Model fit(Dataset d, SplittableRandom random);
+}
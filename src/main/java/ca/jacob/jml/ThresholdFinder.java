@@ -0,0 +1,176 @@
+package ca.jacob.jml;
+
+import ca.jacob.jml.math.Tuple;
+
+import static ca.jacob.jml.math.Util.log2;
+
+/**
+ * Finds the best threshold of a continuous attribute in one sweep over rows sorted by value. Class counts are moved
+ * from the right to the left side one row at a time, and the weighted entropy of each pivot is updated in O(1) from
+ * the running sums of c * log2(c).
+ *
+ * The weighted entropy matches {@link Util#calculateWeightedEntropy(Tuple)}, and ties are broken by the lowest pivot.
+ * When the rows have weights, the sweep moves weights instead of counts and computes w * log2(w) as it goes.
+ */
+public class ThresholdFinder {
+    private final int[] classes;
+    private final int classCount;
+    private final double[] cLogC;
+    private final double[] weights; // of every row, or null
+
+    private final int[] left;
+    private final int[] right;
+    private final double[] leftWeight;
+    private final double[] rightWeight;
+
+    /**
+     * @param classes the class index, from 0 to classCount-1, of every row
+     */
+    public ThresholdFinder(int[] classes, int classCount) {
+        this.classes = classes;
+        this.classCount = classCount;
+        this.weights = null;
+        this.left = new int[classCount];
+        this.right = new int[classCount];
+        this.leftWeight = null;
+        this.rightWeight = null;
+
+        this.cLogC = new double[classes.length + 1];
+        for(int c = 1; c <= classes.length; c++) {
+            cLogC[c] = c * log2(c);
+        }
+    }
+
+    /**
+     * @param weights the weight of every row
+     */
+    public ThresholdFinder(int[] classes, double[] weights, int classCount) {
+        this.classes = classes;
+        this.classCount = classCount;
+        this.weights = weights;
+        this.left = null;
+        this.right = null;
+        this.leftWeight = new double[classCount];
+        this.rightWeight = new double[classCount];
+        this.cLogC = null;
+    }
+
+    /**
+     * Best pivot and its weighted entropy for the rows order[from] to order[to-1], which must be sorted by value.
+     * Returns null when all the values are equal.
+     */
+    public Tuple<Double, Double> find(double[] values, int[] order, int from, int to) {
+        int n = to - from;
+        if(n < 2) {
+            return null;
+        }
+        if(weights != null) {
+            return findWeighted(values, order, from, to);
+        }
+
+        for(int k = 0; k < classCount; k++) {
+            left[k] = 0;
+            right[k] = 0;
+        }
+        for(int p = from; p < to; p++) {
+            right[classes[order[p]]]++;
+        }
+
+        double leftSum = 0;
+        double rightSum = 0;
+        for(int k = 0; k < classCount; k++) {
+            rightSum += cLogC[right[k]];
+        }
+
+        double bestPivot = 0;
+        double minimumEntropy = 0;
+        boolean found = false;
+        for(int p = from; p < to-1; p++) {
+            int k = classes[order[p]];
+            leftSum += cLogC[left[k]+1] - cLogC[left[k]];
+            rightSum += cLogC[right[k]-1] - cLogC[right[k]];
+            left[k]++;
+            right[k]--;
+
+            double value = values[order[p]];
+            double next = values[order[p+1]];
+            if(value == next) {
+                continue;
+            }
+
+            int underCount = p - from + 1;
+            int overCount = n - underCount;
+            double entropy = (cLogC[underCount] - leftSum + cLogC[overCount] - rightSum) / (n * 2);
+            if(!found || entropy < minimumEntropy) {
+                found = true;
+                bestPivot = (value + next) / 2;
+                minimumEntropy = entropy;
+            }
+        }
+
+        if(!found) {
+            return null;
+        }
+        return new Tuple<>(bestPivot, minimumEntropy);
+    }
+
+    private Tuple<Double, Double> findWeighted(double[] values, int[] order, int from, int to) {
+        for(int k = 0; k < classCount; k++) {
+            leftWeight[k] = 0;
+            rightWeight[k] = 0;
+        }
+        double total = 0;
+        for(int p = from; p < to; p++) {
+            rightWeight[classes[order[p]]] += weights[order[p]];
+            total += weights[order[p]];
+        }
+        if(total == 0) {
+            return null;
+        }
+
+        double leftSum = 0;
+        double rightSum = 0;
+        for(int k = 0; k < classCount; k++) {
+            rightSum += wLogW(rightWeight[k]);
+        }
+
+        double under = 0;
+        double bestPivot = 0;
+        double minimumEntropy = 0;
+        boolean found = false;
+        for(int p = from; p < to-1; p++) {
+            int k = classes[order[p]];
+            double w = weights[order[p]];
+            leftSum += wLogW(leftWeight[k] + w) - wLogW(leftWeight[k]);
+            rightSum += wLogW(rightWeight[k] - w) - wLogW(rightWeight[k]);
+            leftWeight[k] += w;
+            rightWeight[k] -= w;
+            under += w;
+
+            double value = values[order[p]];
+            double next = values[order[p+1]];
+            if(value == next) {
+                continue;
+            }
+
+            double entropy = (wLogW(under) - leftSum + wLogW(total - under) - rightSum) / (total * 2);
+            if(!found || entropy < minimumEntropy) {
+                found = true;
+                bestPivot = (value + next) / 2;
+                minimumEntropy = entropy;
+            }
+        }
+
+        if(!found) {
+            return null;
+        }
+        return new Tuple<>(bestPivot, minimumEntropy);
+    }
+
+    /**
+     * w * log2(w), taken as 0 for a weight that rounding left at or just below 0.
+     */
+    private static double wLogW(double w) {
+        return w > 0 ? w * log2(w) : 0;
+    }
+}
@@ -13,41 +13,38 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.*;
 
-import static java.lang.Math.random;
-
 public class Util {
     private static final Logger LOG = LoggerFactory.getLogger(Util.class);
 
 
     public static Vector generateIndices(Vector weights, int numberOfIndices) {
-        Vector probabilities = new Vector(new double[weights.length()]);
-        double sum = weights.sum();
-        for(int i = 0; i < weights.length(); i++) {
-            probabilities.set(i, weights.at(i)/sum);
-        }
-        LOG.debug("probabilities sum is {}", probabilities.sum());
+        return generateIndices(weights, numberOfIndices, new SplittableRandom());
+    }
 
-        Vector indices = new Vector(new int[numberOfIndices]);
-        for(int i = 0; i < numberOfIndices; i++) {
-            double rand = random();
-            LOG.trace("rand for index {} is {}", i, rand);
-            double cumulativeProbability = 0.0;
-            for (int j = 0; j < probabilities.length(); j++) {
-                cumulativeProbability += probabilities.at(j);
-                if (rand <= cumulativeProbability) {
-                    LOG.trace("setting index {} to {}", i, j);
-                    indices.set(i, j);
-                    break;
-                }
-            }
-        }
-        return indices;
+    /**
+     * Draws the indices with replacement in proportion to the weights, which need not be normalised, through a
+     * {@link WeightedSampler}.
+     */
+    public static Vector generateIndices(Vector weights, int numberOfIndices, SplittableRandom random) {
+        int[] indices = new int[numberOfIndices];
+        new WeightedSampler(weights.toArray()).sample(random, indices);
+        return new Vector(indices);
     }
 
     public static Vector generateIndices(int from, int to, int numberOfIndices) {
-        Vector weights = new Vector(new double[to-from]);
-        weights.fill(1./(to-from));
-        return generateIndices(weights, numberOfIndices);
+        return generateIndices(from, to, numberOfIndices, new SplittableRandom());
+    }
+
+    /**
+     * Draws the indices uniformly with replacement from the given generator instead of the shared Math.random(), so
+     * that callers on separate threads neither contend nor depend on each other's draws.
+     */
+    public static Vector generateIndices(int from, int to, int numberOfIndices, SplittableRandom random) {
+        int[] indices = new int[numberOfIndices];
+        for(int i = 0; i < numberOfIndices; i++) {
+            indices[i] = random.nextInt(from, to);
+        }
+        return new Vector(indices);
     }
 
     public static Vector range(int from, int to) {
@@ -58,6 +55,17 @@ public class Util {
         return new Vector(range);
     }
 
+    /**
+     * The indices 0 to n-1, such as every row or every attribute of a dataset.
+     */
+    public static int[] indices(int n) {
+        int[] indices = new int[n];
+        for(int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+
     public static void shuffle(Vector v) {
         Random random = new Random();
 
@@ -107,10 +115,10 @@ public class Util {
 
     public static double calculateWeightedEntropy(List<Dataset> subsets) {
         double entropy = 0;
-        int sum = 0;
+        double sum = 0;
         for(Dataset subset : subsets) {
-            entropy += subset.entropy() * subset.sampleCount();
-            sum += subset.sampleCount();
+            entropy += subset.entropy() * subset.totalWeight();
+            sum += subset.totalWeight();
         }
 
         entropy /= (sum * subsets.size());
@@ -125,10 +133,10 @@ public class Util {
 
     public static double calculateWeightedEntropy(Tuple<Dataset, Dataset> subsets) {
         double entropy = 0;
-        entropy += subsets.first().entropy() * subsets.first().sampleCount();
-        entropy += subsets.last().entropy() * subsets.last().sampleCount();
+        entropy += subsets.first().entropy() * subsets.first().totalWeight();
+        entropy += subsets.last().entropy() * subsets.last().totalWeight();
 
-        entropy /= ((subsets.first().sampleCount() + subsets.last().sampleCount()) * 2);
+        entropy /= ((subsets.first().totalWeight() + subsets.last().totalWeight()) * 2);
 
         LOG.trace("the total weighted entropy is {}", entropy);
         return entropy;
@@ -0,0 +1,14 @@
+package ca.jacob.jml;
+
+/**
+ * An algorithm that can fit samples of unequal weight, counting a sample as many times as its weight relative to the
+ * others. Boosting gives it the weights directly instead of resampling the dataset.
+ */
+public interface WeightedAlgorithm extends Algorithm {
+    /**
+     * Only the relative weights matter, weights w and c * w give the same model.
+     *
+     * @param weights the weight of every sample of d, finite and non negative, not all 0
+     */
+    Model fit(Dataset d, double[] weights);
+}
@@ -0,0 +1,101 @@
+package ca.jacob.jml;
+
+import ca.jacob.jml.exceptions.DataException;
+
+import java.util.SplittableRandom;
+
+/**
+ * Draws indices with replacement in proportion to their weights, with Vose's alias method. The table is built once in
+ * O(n), after which every draw takes one uniform index and one uniform double, whatever the number of weights.
+ *
+ * Index i keeps its own column with probability[i] and gives the rest of it to alias[i]. While an index of weight 0 is
+ * unpaired the other columns are a whole unit above average, far more than rounding, so it always gets an alias and
+ * is never drawn. A sampler is immutable, threads can share it as long as each draws from its own generator.
+ */
+public class WeightedSampler {
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+     * @param weights finite and non negative, not all 0, and not necessarily normalised
+     */
+    public WeightedSampler(double[] weights) {
+        int n = weights.length;
+        if(n == 0) {
+            throw new DataException("there must be at least one weight");
+        }
+
+        double sum = 0;
+        for(double weight : weights) {
+            if(!(weight >= 0) || Double.isInfinite(weight)) {
+                throw new DataException("weights must be finite and non negative");
+            }
+            sum += weight;
+        }
+        if(!(sum > 0) || Double.isInfinite(sum)) {
+            throw new DataException("weights must have a positive and finite sum");
+        }
+
+        probability = new double[n];
+        alias = new int[n];
+
+        // Columns scaled so that the average is 1, split into a stack of small ones and a stack of large ones
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for(int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / sum;
+            if(scaled[i] >= 1) {
+                large[largeCount++] = i;
+            } else {
+                small[smallCount++] = i;
+            }
+        }
+
+        while(smallCount > 0 && largeCount > 0) {
+            int s = small[--smallCount];
+            int l = large[--largeCount];
+            probability[s] = scaled[s];
+            alias[s] = l;
+
+            scaled[l] = (scaled[l] + scaled[s]) - 1;
+            if(scaled[l] >= 1) {
+                large[largeCount++] = l;
+            } else {
+                small[smallCount++] = l;
+            }
+        }
+
+        // What is left is 1 up to rounding
+        while(largeCount > 0) {
+            int l = large[--largeCount];
+            probability[l] = 1;
+            alias[l] = l;
+        }
+        while(smallCount > 0) {
+            int s = small[--smallCount];
+            probability[s] = 1;
+            alias[s] = s;
+        }
+    }
+
+    public int sample(SplittableRandom random) {
+        int i = random.nextInt(probability.length);
+        return random.nextDouble() < probability[i] ? i : alias[i];
+    }
+
+    /**
+     * Fills indices with independent draws.
+     */
+    public void sample(SplittableRandom random, int[] indices) {
+        for(int k = 0; k < indices.length; k++) {
+            indices[k] = sample(random);
+        }
+    }
+
+    public int size() {
+        return probability.length;
+    }
+}
@@ -0,0 +1,209 @@
+package ca.jacob.jml.bayes;
+
+import ca.jacob.jml.Model;
+import ca.jacob.jml.exceptions.AttributeException;
+import ca.jacob.jml.math.Matrix;
+import ca.jacob.jml.math.Vector;
+import ca.jacob.jml.math.distribution.Density;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The {@link ClassSummary}s of a {@link NaiveBayesModel} flattened into arrays of log probabilities. A class scores the
+ * sum of its logs instead of the product of its probabilities, so many attributes do not underflow the score to 0, and
+ * nothing is allocated or modified while predicting a sample.
+ *
+ * The values of discrete attribute j own the slots offset[j] to offset[j] + span[j] - 1 of every class, a slot per
+ * value from base[j] when the values are dense enough, or per sorted value otherwise. A value no class has seen falls
+ * back to the class's unseen probability, like {@link Discrete#probability(double)}.
+ */
+public class CompiledNaiveBayesModel extends Model {
+    private static final int UNSEEN = -1;
+    private static final int BLOCK_SIZE = 256;
+
+    private final int[] classValue;
+    private final double[] logPrior;
+
+    private final boolean[] continuous;
+    private final Density[][] density; // [class][attribute], for continuous attributes
+
+    private final int[] offset; // first slot of every discrete attribute
+    private final int[] span;
+    private final int[] base; // value of the first slot when the attribute is not sorted
+    private final boolean[] sorted;
+    private final int[] keys; // value of every slot of a sorted attribute
+    private final double[][] logs; // [class][slot]
+    private final double[][] logUnseen; // [class][attribute]
+
+    public CompiledNaiveBayesModel(List<ClassSummary> summaries) {
+        int classCount = summaries.size();
+        int d = summaries.get(0).getAttributes().size();
+
+        classValue = new int[classCount];
+        logPrior = new double[classCount];
+        continuous = new boolean[d];
+        density = new Density[classCount][d];
+        offset = new int[d];
+        span = new int[d];
+        base = new int[d];
+        sorted = new boolean[d];
+        logUnseen = new double[classCount][d];
+
+        int[][] values = new int[d][];
+        int slots = 0;
+        for(int j = 0; j < d; j++) {
+            Attribute attribute = summaries.get(0).getAttributes().get(j);
+            if(attribute instanceof Continuous) {
+                continuous[j] = true;
+                continue;
+            } else if(!(attribute instanceof Discrete)) {
+                throw new AttributeException("unknown attribute");
+            }
+
+            TreeSet<Integer> seen = new TreeSet<>();
+            for(ClassSummary summary : summaries) {
+                seen.addAll(((Discrete) summary.getAttributes().get(j)).getConditionalProbabilities().keySet());
+            }
+            values[j] = new int[seen.size()];
+            int k = 0;
+            for(int value : seen) {
+                values[j][k++] = value;
+            }
+
+            offset[j] = slots;
+            if(values[j].length > 0) {
+                long range = (long) values[j][values[j].length-1] - values[j][0] + 1;
+                sorted[j] = range > 4L * values[j].length + 16;
+                span[j] = sorted[j] ? values[j].length : (int) range;
+                base[j] = values[j][0];
+            }
+            slots += span[j];
+        }
+
+        keys = new int[slots];
+        for(int j = 0; j < d; j++) {
+            if(sorted[j]) {
+                System.arraycopy(values[j], 0, keys, offset[j], values[j].length);
+            }
+        }
+
+        logs = new double[classCount][slots];
+        for(int c = 0; c < classCount; c++) {
+            ClassSummary summary = summaries.get(c);
+            classValue[c] = summary.getClassValue();
+            logPrior[c] = Math.log(summary.getClassProbability());
+
+            for(int j = 0; j < d; j++) {
+                Attribute attribute = summary.getAttributes().get(j);
+                if(continuous[j]) {
+                    density[c][j] = ((Continuous) attribute).getDensity();
+                    continue;
+                }
+
+                Discrete discrete = (Discrete) attribute;
+                logUnseen[c][j] = Math.log(discrete.getUnseenConditionalProbability());
+                Arrays.fill(logs[c], offset[j], offset[j] + span[j], logUnseen[c][j]);
+                for(Map.Entry<Integer, Double> entry : discrete.getConditionalProbabilities().entrySet()) {
+                    logs[c][slot(j, entry.getKey())] = Math.log(entry.getValue());
+                }
+            }
+        }
+    }
+
+    @Override
+    public int predict(Vector e) {
+        int best = 0;
+        double maxScore = Double.NEGATIVE_INFINITY;
+        for(int c = 0; c < classValue.length; c++) {
+            double score = logPrior[c];
+            for(int j = 0; j < continuous.length; j++) {
+                score += logProbability(c, j, e.at(j));
+            }
+            if(c == 0 || score > maxScore) {
+                best = c;
+                maxScore = score;
+            }
+        }
+        return classValue[best];
+    }
+
+    /**
+     * Scores blocks of rows attribute by attribute, so that every continuous column of a block goes through one bulk
+     * {@link Density#logDensity(double[], double[])} per class. The sums are added in the same order as one row at a
+     * time.
+     */
+    @Override
+    protected void predict(Matrix x, int from, int to, int[] predictions, int offset) {
+        int block = Math.min(BLOCK_SIZE, to - from);
+        double[][] scores = new double[classValue.length][block];
+        double[] column = new double[block];
+        double[] out = new double[block];
+        for(int start = from; start < to; start += block) {
+            int size = Math.min(block, to - start);
+            if(size < block) {
+                column = new double[size];
+                out = new double[size];
+            }
+            for(int c = 0; c < classValue.length; c++) {
+                Arrays.fill(scores[c], 0, size, logPrior[c]);
+            }
+
+            for(int j = 0; j < continuous.length; j++) {
+                for(int r = 0; r < size; r++) {
+                    column[r] = x.at(start + r, j);
+                }
+                for(int c = 0; c < classValue.length; c++) {
+                    double[] score = scores[c];
+                    if(continuous[j]) {
+                        density[c][j].logDensity(column, out);
+                        for(int r = 0; r < size; r++) {
+                            score[r] += out[r];
+                        }
+                    } else {
+                        for(int r = 0; r < size; r++) {
+                            int slot = slot(j, (int) column[r]);
+                            score[r] += slot == UNSEEN ? logUnseen[c][j] : logs[c][slot];
+                        }
+                    }
+                }
+            }
+
+            for(int r = 0; r < size; r++) {
+                int best = 0;
+                for(int c = 1; c < classValue.length; c++) {
+                    if(scores[c][r] > scores[best][r]) {
+                        best = c;
+                    }
+                }
+                predictions[offset + start - from + r] = classValue[best];
+            }
+        }
+    }
+
+    private double logProbability(int c, int j, double value) {
+        if(continuous[j]) {
+            return density[c][j].logDensity(value);
+        }
+        int slot = slot(j, (int) value);
+        return slot == UNSEEN ? logUnseen[c][j] : logs[c][slot];
+    }
+
+    /**
+     * Slot of the value of discrete attribute j, or UNSEEN if no class has seen the value.
+     */
+    private int slot(int j, int value) {
+        if(!sorted[j]) {
+            long index = (long) value - base[j];
+            return index >= 0 && index < span[j] ? offset[j] + (int) index : UNSEEN;
+        }
+        int index = Arrays.binarySearch(keys, offset[j], offset[j] + span[j], value);
+        return index >= 0 ? index : UNSEEN;
+    }
+
+    public int classCount() {
+        return classValue.length;
+    }
+}
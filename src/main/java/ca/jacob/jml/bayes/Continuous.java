@@ -1,5 +1,6 @@
 package ca.jacob.jml.bayes;
 
+import ca.jacob.jml.math.distribution.Density;
 import ca.jacob.jml.math.distribution.Distribution;
 import ca.jacob.jml.math.Vector;
 import org.slf4j.Logger;
@@ -11,17 +12,26 @@ public class Continuous implements Attribute {
     private Distribution distribution;
     private double mean;
     private double stdev;
+    private Density density;
 
     public Continuous(Vector values, Distribution distribution) {
         this.distribution = distribution;
         this.mean = values.mean();
         this.stdev = values.stdev();
+        this.density = distribution.density(mean, stdev);
         LOG.debug("accuracy -> {}; stdev -> {}", mean, stdev);
     }
 
+    public Continuous(double mean, double stdev, Distribution distribution) {
+        this.distribution = distribution;
+        this.mean = mean;
+        this.stdev = stdev;
+        this.density = distribution.density(mean, stdev);
+    }
+
     @Override
     public double probability(double value) {
-        return distribution.probability(value, mean, stdev);
+        return density.density(value);
     }
 
     public double getMean() {
@@ -31,4 +41,12 @@ public class Continuous implements Attribute {
     public double getStdev() {
         return stdev;
     }
+
+    public Distribution getDistribution() {
+        return distribution;
+    }
+
+    public Density getDensity() {
+        return density;
+    }
 }
@@ -26,14 +26,36 @@ public class Discrete implements Attribute {
         }
     }
 
+    /**
+     * From the number of times each value occurs among the sampleCount values, without the values themselves. The
+     * counts may be sums of sample weights.
+     */
+    public Discrete(Map<Integer, double[]> counts, double sampleCount, int classCount) {
+        double valuesClassCount = sampleCount + classCount;
+        unseenConditionalProbability = ((double)1)/(valuesClassCount);
+
+        conditionalProbabilities = new HashMap<>();
+        for(Map.Entry<Integer, double[]> entry : counts.entrySet()) {
+            double conditionalProbability = (entry.getValue()[0]+1) / (valuesClassCount);
+            conditionalProbabilities.put(entry.getKey(), conditionalProbability);
+        }
+    }
+
     @Override
     public double probability(double value) {
         Double probability = conditionalProbabilities.get((int)value);
         if(probability  == null) {
-            conditionalProbabilities.put((int)value, unseenConditionalProbability); // values.count(value) would be 0 so it is omitted
-            probability = conditionalProbabilities.get((int)value);
+            return unseenConditionalProbability; // values.count(value) would be 0 so it is omitted
         }
 
         return probability;
     }
+
+    double getUnseenConditionalProbability() {
+        return unseenConditionalProbability;
+    }
+
+    Map<Integer, Double> getConditionalProbabilities() {
+        return conditionalProbabilities;
+    }
 }
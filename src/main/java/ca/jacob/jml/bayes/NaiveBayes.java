@@ -1,26 +1,28 @@
 package ca.jacob.jml.bayes;
 
-import ca.jacob.jml.Algorithm;
 import ca.jacob.jml.Dataset;
 import ca.jacob.jml.Model;
+import ca.jacob.jml.WeightedAlgorithm;
 import ca.jacob.jml.math.distribution.Distribution;
-import ca.jacob.jml.exceptions.AttributeException;
-import ca.jacob.jml.math.Vector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
-import static ca.jacob.jml.Dataset.CONTINUOUS;
-import static ca.jacob.jml.Dataset.DISCRETE;
-
-public class NaiveBayes implements Algorithm {
+/**
+ * Fits in one pass over the rows with a {@link NaiveBayesAccumulator}. Datasets of more than {@link #CHUNK_SIZE} rows
+ * are halved down to chunks whose accumulators are filled on the pool, when one is set, and merged pairwise, always in
+ * the same order.
+ */
+public class NaiveBayes implements WeightedAlgorithm {
     private static final Logger LOG = LoggerFactory.getLogger(NaiveBayes.class);
     private static final String NAME = "Naive Bayes";
+    public static final int CHUNK_SIZE = 4096;
 
     private Distribution distribution;
+    private ForkJoinPool pool;
 
     public NaiveBayes() {}
 
@@ -28,45 +30,89 @@ public class NaiveBayes implements Algorithm {
         this.distribution = distribution;
     }
 
+    /**
+     * Pool on which the chunks of a dataset are accumulated, or null, the default, to fit serially.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * An empty accumulator to train the model of this algorithm batch by batch.
+     */
+    public NaiveBayesAccumulator accumulator() {
+        return new NaiveBayesAccumulator(distribution);
+    }
+
     @Override
     public Model fit(Dataset dataset) {
-        Map<Integer, Dataset> separated = dataset.splitByClass();
-
-        List<ClassSummary> summaries = new ArrayList<ClassSummary>();
-        int classCount = separated.size();
-        for(Map.Entry<Integer, Dataset> entry : separated.entrySet()) {
-            LOG.debug("starting summary for class {}", entry.getKey());
-            List<Attribute> attributes = new ArrayList<Attribute>();
-
-            int classValue = entry.getKey();
-            Dataset d = entry.getValue();
-            double classProbability = ((double)d.sampleCount()) / dataset.sampleCount();
-
-            LOG.debug("dataset: {}", d);
-            for(int j = 0; j < d.attributeCount(); j++) {
-                Vector attributeValues = d.attribute(j);
-                if(d.attributeType(j) == CONTINUOUS) {
-                    if(distribution == null) {
-                        throw new BayesException("a distribution must be supplied");
-                    }
-                    attributes.add(new Continuous(attributeValues, distribution));
-                } else if(d.attributeType(j) == DISCRETE) {
-                    attributes.add(new Discrete(attributeValues, classCount));
-                } else {
-                    throw new AttributeException();
-                }
-
-            }
-            LOG.debug("{}: probability: {}; attribute count -> {}", classValue, classProbability, attributes.size());
+        Accumulation accumulation = new Accumulation(dataset, 0, dataset.sampleCount());
+        NaiveBayesAccumulator accumulator;
+        if(pool == null) {
+            accumulator = accumulation.compute();
+        } else if(ForkJoinTask.getPool() == pool) {
+            accumulator = accumulation.invoke();
+        } else {
+            accumulator = pool.invoke(accumulation);
+        }
+        LOG.debug("accumulated {} samples", accumulator.sampleCount());
+        return accumulator.model();
+    }
 
-            summaries.add(new ClassSummary(classValue, classProbability, attributes));
+    /**
+     * Counts, priors, means and variances are all taken over the sample weights. The +1 smoothing of the counts and
+     * the sample variance count a weight of 1 as one sample, so the weights are first scaled to add up to the number
+     * of samples.
+     */
+    @Override
+    public Model fit(Dataset dataset, double[] weights) {
+        double sum = 0;
+        for(double weight : weights) {
+            sum += weight;
+        }
+        if(!(sum > 0)) {
+            throw new BayesException("weights must not all be 0");
         }
 
-        return new NaiveBayesModel(summaries);
+        double[] scaled = new double[weights.length];
+        for(int i = 0; i < weights.length; i++) {
+            scaled[i] = weights[i] * dataset.sampleCount() / sum;
+        }
+        return fit(dataset.weighted(scaled));
     }
 
     @Override
     public String toString() {
         return NAME+"(dist:"+distribution+")";
     }
+
+    private class Accumulation extends RecursiveTask<NaiveBayesAccumulator> {
+        private final Dataset dataset;
+        private final int from;
+        private final int to;
+
+        private Accumulation(Dataset dataset, int from, int to) {
+            this.dataset = dataset;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected NaiveBayesAccumulator compute() {
+            if(pool != null && to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                Accumulation under = new Accumulation(dataset, from, middle);
+                Accumulation over = new Accumulation(dataset, middle, to);
+                under.fork();
+                NaiveBayesAccumulator overAccumulator = over.compute();
+                NaiveBayesAccumulator accumulator = under.join();
+                accumulator.merge(overAccumulator);
+                return accumulator;
+            }
+
+            NaiveBayesAccumulator accumulator = accumulator();
+            accumulator.partialFit(dataset, from, to);
+            return accumulator;
+        }
+    }
 }
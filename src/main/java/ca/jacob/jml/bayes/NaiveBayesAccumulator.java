@@ -0,0 +1,205 @@
+package ca.jacob.jml.bayes;
+
+import ca.jacob.jml.Dataset;
+import ca.jacob.jml.exceptions.AttributeException;
+import ca.jacob.jml.math.Matrix;
+import ca.jacob.jml.math.distribution.Distribution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ca.jacob.jml.Dataset.CONTINUOUS;
+import static ca.jacob.jml.Dataset.DISCRETE;
+
+/**
+ * Sufficient statistics of {@link NaiveBayes} gathered in one pass over the rows: the samples of every class, the count
+ * of every value of a discrete attribute, and the mean and sum of squared differences of a continuous one, updated
+ * with Welford's method. A sample of a weighted dataset counts as many times as its weight, using West's weighted
+ * form of the update, and samples of weight 0 are left out. Batches can be added as they arrive with {@link #partialFit(Dataset)}, and accumulators of
+ * separate partitions combined with {@link #merge(NaiveBayesAccumulator)}.
+ *
+ * An accumulator is not thread-safe, every thread fills its own and merges it afterwards.
+ */
+public class NaiveBayesAccumulator {
+    private final Distribution distribution;
+    private int[] attributeTypes;
+    private int sampleCount;
+    private double totalWeight;
+    private final Map<Integer, ClassStatistics> classes = new HashMap<>();
+
+    public NaiveBayesAccumulator(Distribution distribution) {
+        this.distribution = distribution;
+    }
+
+    public void partialFit(Dataset batch) {
+        partialFit(batch, 0, batch.sampleCount());
+    }
+
+    /**
+     * Adds the rows from to to-1 of the batch.
+     */
+    public void partialFit(Dataset batch, int from, int to) {
+        int d = batch.attributeCount();
+        if(attributeTypes == null) {
+            attributeTypes = new int[d];
+            for(int j = 0; j < d; j++) {
+                attributeTypes[j] = batch.attributeType(j);
+                if(attributeTypes[j] != CONTINUOUS && attributeTypes[j] != DISCRETE) {
+                    throw new AttributeException();
+                }
+            }
+        }
+        checkAttributes(batch);
+
+        Matrix x = batch.getX();
+        for(int i = from; i < to; i++) {
+            double weight = batch.weight(i);
+            if(weight == 0) {
+                continue;
+            }
+            int classValue = batch.classValue(i);
+            ClassStatistics statistics = classes.get(classValue);
+            if(statistics == null) {
+                statistics = new ClassStatistics(d);
+                classes.put(classValue, statistics);
+            }
+
+            statistics.weight += weight;
+            totalWeight += weight;
+            for(int j = 0; j < d; j++) {
+                double value = x.at(i, j);
+                if(attributeTypes[j] == CONTINUOUS) {
+                    double delta = value - statistics.mean[j];
+                    statistics.mean[j] += delta * weight / statistics.weight;
+                    statistics.m2[j] += weight * delta * (value - statistics.mean[j]);
+                } else {
+                    Map<Integer, double[]> counts = statistics.counts.get(j);
+                    double[] count = counts.get((int) value);
+                    if(count == null) {
+                        count = new double[1];
+                        counts.put((int) value, count);
+                    }
+                    count[0] += weight;
+                }
+            }
+        }
+        sampleCount += to - from;
+    }
+
+    /**
+     * Adds the statistics of other, which is left unchanged.
+     */
+    public void merge(NaiveBayesAccumulator other) {
+        if(other.attributeTypes == null) {
+            return;
+        }
+        if(attributeTypes == null) {
+            attributeTypes = other.attributeTypes.clone();
+        } else if(!Arrays.equals(attributeTypes, other.attributeTypes)) {
+            throw new BayesException("the accumulators have different attributes");
+        }
+
+        for(Map.Entry<Integer, ClassStatistics> entry : other.classes.entrySet()) {
+            ClassStatistics theirs = entry.getValue();
+            ClassStatistics ours = classes.get(entry.getKey());
+            if(ours == null) {
+                ours = new ClassStatistics(attributeTypes.length);
+                classes.put(entry.getKey(), ours);
+            }
+
+            double weight = ours.weight + theirs.weight;
+            for(int j = 0; j < attributeTypes.length; j++) {
+                if(attributeTypes[j] == CONTINUOUS) {
+                    // Chan et al.'s pairwise update of the mean and the sum of squared differences
+                    double delta = theirs.mean[j] - ours.mean[j];
+                    ours.m2[j] += theirs.m2[j] + delta * delta * ours.weight * theirs.weight / weight;
+                    ours.mean[j] += delta * theirs.weight / weight;
+                } else {
+                    Map<Integer, double[]> counts = ours.counts.get(j);
+                    for(Map.Entry<Integer, double[]> value : theirs.counts.get(j).entrySet()) {
+                        double[] c = counts.get(value.getKey());
+                        if(c == null) {
+                            counts.put(value.getKey(), new double[]{value.getValue()[0]});
+                        } else {
+                            c[0] += value.getValue()[0];
+                        }
+                    }
+                }
+            }
+            ours.weight = weight;
+        }
+        sampleCount += other.sampleCount;
+        totalWeight += other.totalWeight;
+    }
+
+    /**
+     * The model of the samples added so far, the same {@link NaiveBayes#fit(Dataset)} would give for all of them.
+     */
+    public NaiveBayesModel model() {
+        if(sampleCount == 0) {
+            throw new BayesException("no samples were added");
+        }
+        if(totalWeight == 0) {
+            throw new BayesException("all the samples have weight 0");
+        }
+
+        List<ClassSummary> summaries = new ArrayList<ClassSummary>();
+        int classCount = classes.size();
+        for(Map.Entry<Integer, ClassStatistics> entry : classes.entrySet()) {
+            ClassStatistics statistics = entry.getValue();
+            double classProbability = statistics.weight / totalWeight;
+
+            List<Attribute> attributes = new ArrayList<Attribute>();
+            for(int j = 0; j < attributeTypes.length; j++) {
+                if(attributeTypes[j] == CONTINUOUS) {
+                    if(distribution == null) {
+                        throw new BayesException("a distribution must be supplied");
+                    }
+                    // the sample standard deviation, 0 for a single sample like Vector.stdev, and the population one
+                    // for samples weighing 1 or less altogether
+                    double variance = statistics.m2[j] / (statistics.weight <= 1 ? statistics.weight : statistics.weight - 1);
+                    double stdev = Math.sqrt(variance);
+                    attributes.add(new Continuous(statistics.mean[j], stdev, distribution));
+                } else {
+                    attributes.add(new Discrete(statistics.counts.get(j), statistics.weight, classCount));
+                }
+            }
+            summaries.add(new ClassSummary(entry.getKey(), classProbability, attributes));
+        }
+        return new NaiveBayesModel(summaries);
+    }
+
+    public int sampleCount() {
+        return sampleCount;
+    }
+
+    private void checkAttributes(Dataset batch) {
+        if(batch.attributeCount() != attributeTypes.length) {
+            throw new BayesException("the batch has "+batch.attributeCount()+" attributes instead of "+attributeTypes.length);
+        }
+        for(int j = 0; j < attributeTypes.length; j++) {
+            if(batch.attributeType(j) != attributeTypes[j]) {
+                throw new BayesException("attribute "+j+" of the batch has another type");
+            }
+        }
+    }
+
+    private static class ClassStatistics {
+        private double weight;
+        private final double[] mean;
+        private final double[] m2; // sum of squared differences to the mean
+        private final List<Map<Integer, double[]>> counts; // weight of every value of a discrete attribute
+
+        private ClassStatistics(int d) {
+            this.mean = new double[d];
+            this.m2 = new double[d];
+            this.counts = new ArrayList<>();
+            for(int j = 0; j < d; j++) {
+                counts.add(new HashMap<Integer, double[]>());
+            }
+        }
+    }
+}
@@ -34,6 +34,10 @@ public class NaiveBayesModel extends Model {
         return maxSummary.getClassValue();
     }
 
+    public CompiledNaiveBayesModel compile() {
+        return new CompiledNaiveBayesModel(summaries);
+    }
+
     public List<ClassSummary> getSummaries() {
         return summaries;
     }
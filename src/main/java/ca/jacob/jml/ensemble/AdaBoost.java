@@ -3,6 +3,7 @@ package ca.jacob.jml.ensemble;
 import ca.jacob.jml.Algorithm;
 import ca.jacob.jml.Dataset;
 import ca.jacob.jml.Model;
+import ca.jacob.jml.WeightedAlgorithm;
 import ca.jacob.jml.exceptions.DataException;
 import ca.jacob.jml.math.Vector;
 import org.slf4j.Logger;
@@ -13,6 +14,10 @@ import static ca.jacob.jml.math.Util.*;
 import static java.lang.Math.log;
 
 
+/**
+ * Fits every estimator on the boosting weights directly when the algorithm is a {@link WeightedAlgorithm}, and on a
+ * weighted resample of the given proportion of the dataset otherwise.
+ */
 public class AdaBoost implements Algorithm {
     private static final Logger LOG = LoggerFactory.getLogger(AdaBoost.class);
     private static final String NAME = "AdaBoost";
@@ -21,6 +26,7 @@ public class AdaBoost implements Algorithm {
     private Algorithm algorithm;
     private int numberOfEstimators;
     private double proportionOfSamples;
+    private boolean resampling;
 
     public AdaBoost(Algorithm algorithm, int numberOfEstimators, double proportionOfSamples) {
         this.algorithm = algorithm;
@@ -28,6 +34,13 @@ public class AdaBoost implements Algorithm {
         this.proportionOfSamples = proportionOfSamples;
     }
 
+    /**
+     * Resamples the dataset every round even when the algorithm could fit the weights directly.
+     */
+    public void setResampling(boolean resampling) {
+        this.resampling = resampling;
+    }
+
     public Model fit(Dataset dataset) {
         int numberOfSamples = (int)(dataset.sampleCount() * proportionOfSamples);
         LOG.debug("number of samples for each training iteration: {}", numberOfSamples);
@@ -45,12 +58,19 @@ public class AdaBoost implements Algorithm {
         int classCount = classes.unique().length();
         LOG.debug("there are {} unique classes", classCount);
 
+        boolean weighted = !resampling && algorithm instanceof WeightedAlgorithm;
+
         for(int i = 0; i < numberOfEstimators; i++) {
             LOG.debug("starting iteration {}", i+1);
 
-            Vector indices = generateIndices(weights, numberOfSamples);
-            Dataset weightedDataset = dataset.samples(indices);
-            Model m = algorithm.fit(weightedDataset);
+            Model m;
+            if(weighted) {
+                m = ((WeightedAlgorithm) algorithm).fit(dataset, weights.toArray());
+            } else {
+                Vector indices = generateIndices(weights, numberOfSamples);
+                Dataset weightedDataset = dataset.samples(indices);
+                m = algorithm.fit(weightedDataset);
+            }
 
             Vector predictions = m.predict(dataset.getX());
             Vector err = error(predictions, classes); // 1 if wrong, else 0
@@ -60,9 +80,10 @@ public class AdaBoost implements Algorithm {
             double alpha = log((1-error)/(error)) + log(classCount-1);
             LOG.debug("alpha: {}", alpha);
 
-            if(Double.isNaN(alpha)) {
+            if(Double.isNaN(alpha) || Double.isInfinite(alpha)) {
+                // a perfect or useless estimator, whose alpha would turn the weights into NaN
                 alpha = log((1-error+EPSILON)/(error+EPSILON)) + log(classCount-1);
-                LOG.debug("alpha is NaN");
+                LOG.debug("alpha is {} for error {}", alpha, error);
             }
 
             weights = weights.mul(exp(err.mul(alpha))); //updating weights
@@ -78,6 +99,6 @@ public class AdaBoost implements Algorithm {
 
     @Override
     public String toString() {
-        return NAME + "(estimators:"+numberOfEstimators+", proportion:"+proportionOfSamples+") with " + algorithm.toString();
+        return NAME + "(estimators:"+numberOfEstimators+", proportion:"+proportionOfSamples+(resampling ? ", resampling" : "")+") with " + algorithm.toString();
     }
 }
@@ -0,0 +1,96 @@
+package ca.jacob.jml.ensemble;
+
+import ca.jacob.jml.Model;
+import ca.jacob.jml.math.Matrix;
+import ca.jacob.jml.math.Vector;
+import ca.jacob.jml.tree.Node;
+import ca.jacob.jml.tree.TreeArena;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The trees of a {@link RandomForestModel} flattened into one {@link TreeArena}, voting into an array of counts
+ * indexed by class. Ties go to the smallest class value.
+ *
+ * A batch walks every tree for a block of rows before moving to the next tree, so that the nodes of a tree stay in
+ * cache while the block goes through it.
+ */
+public class CompiledRandomForestModel extends Model {
+    private static final int BLOCK_SIZE = 256;
+
+    private final TreeArena arena;
+    private final int[] classes; // sorted class values
+    private final int[] vote; // index into classes of the label of every node
+
+    public CompiledRandomForestModel(List<Node> roots) {
+        this.arena = new TreeArena(roots);
+
+        int[] labels = new int[arena.nodeCount()];
+        for(int n = 0; n < labels.length; n++) {
+            labels[n] = arena.label(n);
+        }
+        int[] sorted = labels.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for(int k = 0; k < sorted.length; k++) {
+            if(k == 0 || sorted[k] != sorted[k-1]) {
+                sorted[distinct++] = sorted[k];
+            }
+        }
+        this.classes = Arrays.copyOf(sorted, distinct);
+
+        this.vote = new int[labels.length];
+        for(int n = 0; n < labels.length; n++) {
+            vote[n] = Arrays.binarySearch(classes, labels[n]);
+        }
+    }
+
+    @Override
+    public int predict(Vector e) {
+        int[] votes = new int[classes.length];
+        for(int t = 0; t < arena.treeCount(); t++) {
+            votes[vote[arena.leaf(t, e)]]++;
+        }
+        return classes[argmax(votes, 0)];
+    }
+
+    @Override
+    protected void predict(Matrix x, int from, int to, int[] predictions, int offset) {
+        int block = Math.min(BLOCK_SIZE, to - from);
+        int[] votes = new int[block * classes.length];
+        for(int start = from; start < to; start += block) {
+            int size = Math.min(block, to - start);
+            Arrays.fill(votes, 0);
+            for(int t = 0; t < arena.treeCount(); t++) {
+                for(int r = 0; r < size; r++) {
+                    votes[r * classes.length + vote[arena.leaf(t, x, start + r)]]++;
+                }
+            }
+            for(int r = 0; r < size; r++) {
+                predictions[offset + start - from + r] = classes[argmax(votes, r * classes.length)];
+            }
+        }
+    }
+
+    /**
+     * Index of the most votes among the classes.length counts from offset, relative to offset.
+     */
+    private int argmax(int[] votes, int offset) {
+        int best = 0;
+        for(int k = 1; k < classes.length; k++) {
+            if(votes[offset + k] > votes[offset + best]) {
+                best = k;
+            }
+        }
+        return best;
+    }
+
+    public int treeCount() {
+        return arena.treeCount();
+    }
+
+    public int nodeCount() {
+        return arena.nodeCount();
+    }
+}
@@ -3,12 +3,32 @@ package ca.jacob.jml.ensemble;
 import ca.jacob.jml.Algorithm;
 import ca.jacob.jml.Model;
 import ca.jacob.jml.Dataset;
+import ca.jacob.jml.RandomizedAlgorithm;
+import ca.jacob.jml.math.Matrix;
 import ca.jacob.jml.math.Vector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
 import static ca.jacob.jml.Util.generateIndices;
 
+/**
+ * Trains its trees concurrently once a pool is set. Every tree draws its samples from its own SplittableRandom, split
+ * in order from one seeded by the forest, so a seeded forest is the same whatever the number of threads. On a pool,
+ * the algorithm must be safe to fit from several threads at once. A {@link RandomizedAlgorithm} fits each tree with
+ * a generator split from the tree's, such as an {@link ca.jacob.jml.tree.ID3} drawing the attributes of its nodes,
+ * see {@link ca.jacob.jml.tree.ID3#setMaxFeatures(int)}.
+ *
+ * The model keeps the samples every tree did not draw, its out-of-bag samples. With {@link #setOutOfBag(boolean)}, fit
+ * also estimates the accuracy of the forest from the votes of the trees on their out-of-bag samples, and the importance
+ * of every attribute as the accuracy a tree loses on them once the attribute's values are permuted among them.
+ */
 public class RandomForest implements Algorithm {
     private static final Logger LOG = LoggerFactory.getLogger(RandomForest.class);
     private static final String NAME = "Random Forest";
@@ -16,36 +36,239 @@ public class RandomForest implements Algorithm {
     private Algorithm algorithm;
     private int sizeOfForest;
     private double percentageOfSamples;
+    private Long seed;
+    private ForkJoinPool pool;
+    private boolean outOfBag;
 
     public RandomForest(Algorithm algorithm, int sizeOfForest, double percentageOfSamples) {
+        this(algorithm, sizeOfForest, percentageOfSamples, null);
+    }
+
+    public RandomForest(Algorithm algorithm, int sizeOfForest, double percentageOfSamples, Long seed) {
         this.algorithm = algorithm;
         this.sizeOfForest = sizeOfForest;
         this.percentageOfSamples = percentageOfSamples;
+        this.seed = seed;
     }
 
-    public Model fit(Dataset dataset) {
-        RandomForestModel forest = new RandomForestModel();
+    /**
+     * Pool on which the trees are trained, or null, the default, to train them one after the other.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
 
+    /**
+     * Whether fit estimates the out-of-bag accuracy and the permutation importance of every attribute, each tree
+     * predicting its out-of-bag samples once per attribute.
+     */
+    public void setOutOfBag(boolean outOfBag) {
+        this.outOfBag = outOfBag;
+    }
+
+    public Model fit(Dataset dataset) {
         int numberOfSamples = (int)(percentageOfSamples * dataset.sampleCount());
         LOG.info("number of samples per tree is {}", numberOfSamples);
 
+        SplittableRandom random = seed == null ? new SplittableRandom() : new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[sizeOfForest];
         for(int i = 0; i < sizeOfForest; i++) {
-            LOG.debug("starting iteration {}", i+1);
+            randoms[i] = random.split();
+        }
 
-            Vector indices = generateIndices(0, dataset.sampleCount(), numberOfSamples);
-            Dataset subset = dataset.samples(indices);
+        Model[] trees = new Model[sizeOfForest];
+        BitSet[] bags = new BitSet[sizeOfForest];
+        Evaluation[] evaluations = outOfBag ? new Evaluation[sizeOfForest] : null;
+        Trees task = new Trees(dataset, numberOfSamples, randoms, trees, bags, evaluations, 0, sizeOfForest);
+        if(pool == null) {
+            task.compute();
+        } else if(ForkJoinTask.getPool() == pool) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
 
-            Model m = algorithm.fit(subset);
+        RandomForestModel forest = new RandomForestModel();
+        for(Model tree : trees) {
+            forest.add(tree);
+        }
+        forest.setOutOfBag(bags);
+        if(evaluations != null) {
+            evaluate(forest, dataset, bags, evaluations);
+        }
+        return forest;
+    }
+
+    /**
+     * Fits tree i on its draw of the samples and records the samples it did not draw.
+     */
+    private Model fit(Dataset dataset, int numberOfSamples, SplittableRandom random, BitSet[] bags, Evaluation[] evaluations, int i) {
+        Vector indices = generateIndices(0, dataset.sampleCount(), numberOfSamples, random);
+        Dataset subset = dataset.samples(indices);
+
+        BitSet bag = new BitSet(dataset.sampleCount());
+        bag.set(0, dataset.sampleCount());
+        for(int k = 0; k < indices.length(); k++) {
+            bag.clear(indices.intAt(k));
+        }
+        bags[i] = bag;
+
+        Model m;
+        if(algorithm instanceof RandomizedAlgorithm) {
+            m = ((RandomizedAlgorithm) algorithm).fit(subset, random.split());
+        } else {
+            m = algorithm.fit(subset);
+        }
+        if(LOG.isDebugEnabled()) {
             LOG.debug("accuracy of model: {}", m.accuracy(subset));
+        }
+        if(evaluations != null) {
+            evaluations[i] = new Evaluation(m, dataset, bag, random);
+        }
+        return m;
+    }
 
-            forest.add(m);
+    /**
+     * Sums the votes of the trees on their out-of-bag samples and averages their importances, tree by tree in order.
+     */
+    private static void evaluate(RandomForestModel forest, Dataset dataset, BitSet[] bags, Evaluation[] evaluations) {
+        Vector unique = dataset.uniqueClasses();
+        int[] classes = new int[unique.length()];
+        for(int c = 0; c < classes.length; c++) {
+            classes[c] = unique.intAt(c);
+        }
+        int[] votes = new int[dataset.sampleCount() * classes.length];
+        double[] importances = new double[dataset.attributeCount()];
+        int evaluated = 0;
+        for(int t = 0; t < evaluations.length; t++) {
+            Evaluation evaluation = evaluations[t];
+            int k = 0;
+            for(int i = bags[t].nextSetBit(0); i >= 0; i = bags[t].nextSetBit(i + 1)) {
+                votes[i * classes.length + Arrays.binarySearch(classes, evaluation.predictions[k++])]++;
+            }
+            if(evaluation.predictions.length > 0) {
+                for(int j = 0; j < importances.length; j++) {
+                    importances[j] += evaluation.importances[j];
+                }
+                evaluated++;
+            }
         }
 
-        return forest;
+        int voted = 0;
+        int correct = 0;
+        for(int i = 0; i < dataset.sampleCount(); i++) {
+            int best = 0;
+            for(int c = 1; c < classes.length; c++) {
+                if(votes[i * classes.length + c] > votes[i * classes.length + best]) {
+                    best = c;
+                }
+            }
+            if(votes[i * classes.length + best] == 0) {
+                continue; // every tree drew the sample
+            }
+            voted++;
+            if(classes[best] == dataset.classValue(i)) {
+                correct++;
+            }
+        }
+        for(int j = 0; j < importances.length; j++) {
+            importances[j] = evaluated == 0 ? 0 : importances[j] / evaluated;
+        }
+        double accuracy = voted == 0 ? Double.NaN : (double) correct / voted * 100;
+        LOG.info("out-of-bag accuracy on {} samples is {}%", voted, accuracy);
+        forest.setOutOfBagEvaluation(accuracy, importances);
     }
 
     @Override
     public String toString() {
         return NAME + "(size:"+sizeOfForest+", percentage:"+percentageOfSamples+") with " + algorithm.toString();
     }
+
+    /**
+     * Trains the trees from to to-1 by halving them down to single trees.
+     */
+    private class Trees extends RecursiveAction {
+        private final Dataset dataset;
+        private final int numberOfSamples;
+        private final SplittableRandom[] randoms;
+        private final Model[] trees;
+        private final BitSet[] bags;
+        private final Evaluation[] evaluations;
+        private final int from;
+        private final int to;
+
+        private Trees(Dataset dataset, int numberOfSamples, SplittableRandom[] randoms, Model[] trees, BitSet[] bags,
+                      Evaluation[] evaluations, int from, int to) {
+            this.dataset = dataset;
+            this.numberOfSamples = numberOfSamples;
+            this.randoms = randoms;
+            this.trees = trees;
+            this.bags = bags;
+            this.evaluations = evaluations;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(pool != null && to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Trees(dataset, numberOfSamples, randoms, trees, bags, evaluations, from, middle),
+                        new Trees(dataset, numberOfSamples, randoms, trees, bags, evaluations, middle, to));
+                return;
+            }
+
+            for(int i = from; i < to; i++) {
+                LOG.debug("starting tree {}", i+1);
+                trees[i] = fit(dataset, numberOfSamples, randoms[i], bags, evaluations, i);
+            }
+        }
+    }
+
+    /**
+     * Predictions of one tree on its out-of-bag samples, in row order, and the accuracy it loses on them when the
+     * values of each attribute are shuffled among them.
+     */
+    private static class Evaluation {
+        private final int[] predictions;
+        private final double[] importances;
+
+        private Evaluation(Model tree, Dataset dataset, BitSet bag, SplittableRandom random) {
+            Matrix x = dataset.getX();
+            int[] rows = bag.stream().toArray();
+            this.predictions = new int[rows.length];
+            this.importances = new double[dataset.attributeCount()];
+            if(rows.length == 0) {
+                return;
+            }
+
+            int correct = 0;
+            for(int k = 0; k < rows.length; k++) {
+                predictions[k] = tree.predict(x.row(rows[k]));
+                if(predictions[k] == dataset.classValue(rows[k])) {
+                    correct++;
+                }
+            }
+
+            int[] permutation = rows.clone();
+            for(int j = 0; j < importances.length; j++) {
+                for(int k = permutation.length - 1; k > 0; k--) {
+                    int swap = random.nextInt(k + 1);
+                    int row = permutation[k];
+                    permutation[k] = permutation[swap];
+                    permutation[swap] = row;
+                }
+
+                int permutedCorrect = 0;
+                for(int k = 0; k < rows.length; k++) {
+                    Vector e = x.row(rows[k]).clone();
+                    e.set(j, x.at(permutation[k], j));
+                    if(tree.predict(e) == dataset.classValue(rows[k])) {
+                        permutedCorrect++;
+                    }
+                }
+                importances[j] = (double) (correct - permutedCorrect) / rows.length;
+            }
+        }
+    }
 }
@@ -1,17 +1,24 @@
 package ca.jacob.jml.ensemble;
 
 import ca.jacob.jml.Model;
+import ca.jacob.jml.exceptions.PredictionException;
 import ca.jacob.jml.math.Vector;
+import ca.jacob.jml.tree.ID3Model;
+import ca.jacob.jml.tree.Node;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 public class RandomForestModel extends Model {
     private static final Logger LOG = LoggerFactory.getLogger(RandomForestModel.class);
 
     private List<Model> trees;
+    private BitSet[] outOfBag;
+    private double outOfBagAccuracy = Double.NaN;
+    private double[] importances;
 
     @Override
     public int predict(Vector e) {
@@ -20,9 +27,10 @@ public class RandomForestModel extends Model {
             predictions.set(i, trees.get(i).predict(e));
         }
         LOG.debug("predictions: {}", predictions);
-        LOG.debug("prediction {}", predictions.valueOfMaxOccurrence());
 
-        return predictions.valueOfMaxOccurrence();
+        int prediction = predictions.valueOfMaxOccurrence();
+        LOG.debug("prediction {}", prediction);
+        return prediction;
     }
 
     public void add(Model tree) {
@@ -31,4 +39,54 @@ public class RandomForestModel extends Model {
         }
         trees.add(tree);
     }
+
+    /**
+     * The trees flattened into one arena, see {@link CompiledRandomForestModel}. Every tree must be an {@link ID3Model}.
+     */
+    public CompiledRandomForestModel compile() {
+        List<Node> roots = new ArrayList<>();
+        for(Model tree : trees) {
+            if(!(tree instanceof ID3Model)) {
+                throw new PredictionException("only forests of ID3 trees can be compiled");
+            }
+            roots.add(((ID3Model) tree).getRoot());
+        }
+        return new CompiledRandomForestModel(roots);
+    }
+
+    public List<Model> getTrees() {
+        return trees;
+    }
+
+    void setOutOfBag(BitSet[] outOfBag) {
+        this.outOfBag = outOfBag;
+    }
+
+    void setOutOfBagEvaluation(double accuracy, double[] importances) {
+        this.outOfBagAccuracy = accuracy;
+        this.importances = importances;
+    }
+
+    /**
+     * Training samples tree t did not draw, or null if the forest was not fitted by {@link RandomForest}.
+     */
+    public BitSet getOutOfBag(int t) {
+        return outOfBag == null ? null : outOfBag[t];
+    }
+
+    /**
+     * Percentage of the training samples the trees that did not draw them predict correctly by majority, NaN unless
+     * the forest was fitted with {@link RandomForest#setOutOfBag(boolean)}.
+     */
+    public double getOutOfBagAccuracy() {
+        return outOfBagAccuracy;
+    }
+
+    /**
+     * Mean share of its out-of-bag samples a tree stops predicting correctly once the values of each attribute are
+     * permuted among them, null unless the forest was fitted with {@link RandomForest#setOutOfBag(boolean)}.
+     */
+    public double[] getImportances() {
+        return importances;
+    }
 }
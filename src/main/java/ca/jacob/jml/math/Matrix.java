@@ -1,97 +1,356 @@
 package ca.jacob.jml.math;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
+/**
+ * Dense matrix stored in one flat array, either row-major (rows are contiguous, best for per-sample access) or
+ * column-major (columns are contiguous, best for per-attribute access).
+ *
+ * Rows and columns are addressed through optional index maps so that {@link #rows(Vector)}, {@link #dropCol(int)}
+ * and {@link #swapCols(int, int)} only remap indices. Matrices created by {@link #rows(Vector)} share storage with
+ * their parent until either one is written to. {@link #row(int)} and {@link #col(int)} return views that copy
+ * themselves when modified, and the matrix copies its data before its next write so that the views keep the values
+ * they were taken with.
+ */
 public class Matrix {
-    private List<Vector> data;
+    public static final int ROW_MAJOR = 0;
+    public static final int COLUMN_MAJOR = 1;
+
+    private double[] data;
+    private int layout;
+    private int leading; // physical length of the contiguous dimension
+    private int rowCount;
+    private int colCount;
+    private int[] rowIndex; // logical -> physical row, null when identity
+    private int[] colIndex; // logical -> physical column, null when identity
+    private volatile boolean shared; // set by reads that hand out views, possibly from several threads
 
     public Matrix(double[][] data) {
-        this.data = new ArrayList<>();
-        for(double[] row : data) {
-            this.data.add(new Vector(row));
+        this.init(data.length, data.length == 0 ? 0 : data[0].length);
+        for(int i = 0; i < data.length; i++) {
+            checkLength(data[i].length);
+            System.arraycopy(data[i], 0, this.data, i * colCount, colCount);
         }
     }
 
     public Matrix(int[][] data) {
-        this.data = new ArrayList<>();
-        for(int[] row : data) {
-            this.data.add(new Vector(row));
+        this.init(data.length, data.length == 0 ? 0 : data[0].length);
+        for(int i = 0; i < data.length; i++) {
+            checkLength(data[i].length);
+            for(int j = 0; j < colCount; j++) {
+                this.data[i * colCount + j] = data[i][j];
+            }
         }
     }
 
     public Matrix(String[][] data) {
-        this.data = new ArrayList<>();
-        for(String[] row : data) {
-            this.data.add(new Vector(row));
+        this.init(data.length, data.length == 0 ? 0 : data[0].length);
+        for(int i = 0; i < data.length; i++) {
+            checkLength(data[i].length);
+            new Vector(data[i]).toArray(this.data, i * colCount);
         }
     }
 
     public Matrix() {
-        data = new ArrayList<>();
+        this.init(0, 0);
+    }
+
+    /**
+     * Adopts the given array without copying it.
+     */
+    public Matrix(double[] data, int rowCount, int colCount, int layout) {
+        if(data.length < rowCount * colCount) {
+            throw new MathException("data length must be at least rowCount * colCount");
+        }
+        if(layout != ROW_MAJOR && layout != COLUMN_MAJOR) {
+            throw new MathException("unknown layout " + layout);
+        }
+        this.data = data;
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+        this.layout = layout;
+        this.leading = layout == ROW_MAJOR ? colCount : rowCount;
+    }
+
+    private Matrix(Matrix other) {
+        this.data = other.data;
+        this.layout = other.layout;
+        this.leading = other.leading;
+        this.rowCount = other.rowCount;
+        this.colCount = other.colCount;
+        this.rowIndex = other.rowIndex;
+        this.colIndex = other.colIndex;
+    }
+
+    private void init(int rowCount, int colCount) {
+        this.data = new double[rowCount * colCount];
+        this.layout = ROW_MAJOR;
+        this.leading = colCount;
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+    }
+
+    private void checkLength(int length) {
+        if(length != colCount) {
+            throw new MathException("all rows must have the same length");
+        }
+    }
+
+    private int physicalRow(int i) {
+        if(i < 0 || i >= rowCount) {
+            throw new IndexOutOfBoundsException("row: " + i + ", row count: " + rowCount);
+        }
+        return rowIndex == null ? i : rowIndex[i];
+    }
+
+    private int physicalCol(int j) {
+        if(j < 0 || j >= colCount) {
+            throw new IndexOutOfBoundsException("col: " + j + ", col count: " + colCount);
+        }
+        return colIndex == null ? j : colIndex[j];
+    }
+
+    private int offset(int physicalRow, int physicalCol) {
+        return layout == ROW_MAJOR ? physicalRow * leading + physicalCol : physicalCol * leading + physicalRow;
+    }
+
+    /**
+     * Makes sure this matrix owns a compact copy of its data in the given layout with no index maps.
+     */
+    private void own(int layout) {
+        if(!shared && rowIndex == null && colIndex == null && this.layout == layout) {
+            return;
+        }
+
+        double[] compact = new double[rowCount * colCount];
+        for(int i = 0; i < rowCount; i++) {
+            for(int j = 0; j < colCount; j++) {
+                int k = layout == ROW_MAJOR ? i * colCount + j : j * rowCount + i;
+                compact[k] = this.at(i, j);
+            }
+        }
+        this.data = compact;
+        this.layout = layout;
+        this.leading = layout == ROW_MAJOR ? colCount : rowCount;
+        this.rowIndex = null;
+        this.colIndex = null;
+        this.shared = false;
+    }
+
+    private void own() {
+        own(layout);
+    }
+
+    /**
+     * Marks the data as seen by a view, only writing the flag the first time so that reads stay cheap.
+     */
+    private void share() {
+        if(!shared) {
+            shared = true;
+        }
     }
 
     public Vector row(int i) {
-        return data.get(i).clone();
+        int r = physicalRow(i);
+        share();
+        if(layout == ROW_MAJOR) {
+            return Vector.view(data, r * leading, 1, colIndex, colCount);
+        }
+        return Vector.view(data, r, leading, colIndex, colCount);
     }
 
     public Matrix rows(Vector indices) {
-        Matrix m = new Matrix(new double[indices.length()][this.colCount()]);
-        for(int i = 0; i < indices.length(); i++) {
-            m.setRow(i, this.row(indices.intAt(i)));
+        int[] index = new int[indices.length()];
+        for(int i = 0; i < index.length; i++) {
+            index[i] = indices.intAt(i);
         }
+        return this.rows(index);
+    }
+
+    /**
+     * Matrix of the given rows sharing storage with this matrix, O(indices.length).
+     */
+    public Matrix rows(int[] indices) {
+        int[] index = new int[indices.length];
+        for(int i = 0; i < indices.length; i++) {
+            index[i] = physicalRow(indices[i]);
+        }
+        Matrix m = new Matrix(this);
+        m.rowIndex = index;
+        m.rowCount = index.length;
+        m.shared = true;
+        share();
         return m;
     }
 
+    /**
+     * Matrix of the given columns sharing storage with this matrix, O(indices.length).
+     */
+    public Matrix cols(int[] indices) {
+        int[] index = new int[indices.length];
+        for(int j = 0; j < indices.length; j++) {
+            index[j] = physicalCol(indices[j]);
+        }
+        Matrix m = new Matrix(this);
+        m.colIndex = index;
+        m.colCount = index.length;
+        m.shared = true;
+        share();
+        return m;
+    }
+
+    /**
+     * Matrix of the given rows and columns sharing storage with this matrix, like rows(rows).cols(cols) but without
+     * marking this matrix as shared, so that views can be taken from several threads at once. This matrix must not be
+     * written to while the view is in use. The arrays are kept as index maps, without copying them when this matrix
+     * has none of its own, and must not be modified afterwards.
+     */
+    public Matrix view(int[] rows, int[] cols) {
+        Matrix m = new Matrix(this);
+        m.rowIndex = physicalRows(rows);
+        m.colIndex = physicalCols(cols);
+        m.rowCount = rows.length;
+        m.colCount = cols.length;
+        m.shared = true;
+        return m;
+    }
+
+    private int[] physicalRows(int[] indices) {
+        if(rowIndex == null) {
+            for(int i : indices) {
+                physicalRow(i);
+            }
+            return indices;
+        }
+        int[] index = new int[indices.length];
+        for(int i = 0; i < indices.length; i++) {
+            index[i] = physicalRow(indices[i]);
+        }
+        return index;
+    }
+
+    private int[] physicalCols(int[] indices) {
+        if(colIndex == null) {
+            for(int j : indices) {
+                physicalCol(j);
+            }
+            return indices;
+        }
+        int[] index = new int[indices.length];
+        for(int j = 0; j < indices.length; j++) {
+            index[j] = physicalCol(indices[j]);
+        }
+        return index;
+    }
+
     public void pushRow(Vector v) {
-        data.add(v);
+        own(ROW_MAJOR);
+        if(rowCount == 0) {
+            colCount = v.length();
+            leading = colCount;
+        } else if(v.length() != colCount) {
+            throw new MathException("vector length must match matrix col count");
+        }
+
+        int size = rowCount * colCount;
+        if(size + colCount > data.length) {
+            data = Arrays.copyOf(data, Math.max(size + colCount, data.length + (data.length >> 1) + colCount));
+        }
+        v.toArray(data, size);
+        rowCount++;
     }
 
     public void setRow(int i, Vector v) {
-        data.set(i, v);
+        if(v.length() != this.colCount()) {
+            throw new MathException("vector length must match matrix col count");
+        }
+
+        physicalRow(i);
+        own();
+        for(int j = 0; j < colCount; j++) {
+            data[offset(i, j)] = v.at(j);
+        }
     }
 
     public void pushCol(Vector col) {
-        for(int j = 0; j < this.rowCount(); j++) {
-            data.get(j).add(col.at(j));
+        if(col.length() != this.rowCount()) {
+            throw new MathException("vector length must match matrix row count");
         }
+
+        own(COLUMN_MAJOR);
+        int size = rowCount * colCount;
+        data = Arrays.copyOf(data, size + rowCount);
+        col.toArray(data, size);
+        colCount++;
     }
 
     public void dropCol(int j) {
-        for (int i = 0; i < this.rowCount(); i++) {
-            data.get(i).remove(j);
+        physicalCol(j);
+        int[] index = new int[colCount-1];
+        for(int k = 0, l = 0; k < colCount; k++) {
+            if(k != j) {
+                index[l++] = colIndex == null ? k : colIndex[k];
+            }
         }
+        colIndex = index;
+        colCount--;
     }
 
     public Vector col(int j) {
-        Vector v = new Vector();
-        for (int i = 0; i < this.rowCount(); i++) {
-            v.add(data.get(i).at(j));
+        int c = physicalCol(j);
+        share();
+        if(layout == ROW_MAJOR) {
+            return Vector.view(data, c, leading, rowIndex, rowCount);
         }
-        return v;
+        return Vector.view(data, c * leading, 1, rowIndex, rowCount);
     }
 
     public double at(int i, int j) {
-        return data.get(i).at(j);
+        return data[offset(physicalRow(i), physicalCol(j))];
+    }
+
+    public void set(int i, int j, double value) {
+        physicalRow(i);
+        physicalCol(j);
+        own();
+        data[offset(i, j)] = value;
     }
 
     public int rowCount() {
-        return data.size();
+        return rowCount;
     }
 
     public int colCount() {
         if (this.rowCount() == 0) {
             return 0;
         }
-        return data.get(0).length();
+        return colCount;
+    }
+
+    public int getLayout() {
+        return layout;
+    }
+
+    /**
+     * Compact copy of this matrix in the given layout.
+     */
+    public Matrix toLayout(int layout) {
+        Matrix m = new Matrix(this);
+        m.shared = true;
+        m.own(layout);
+        return m;
     }
 
     @Override
     public String toString() {
-        return data.toString();
+        StringBuilder builder = new StringBuilder("[");
+        for(int i = 0; i < rowCount; i++) {
+            if(i > 0) {
+                builder.append(", ");
+            }
+            builder.append(row(i));
+        }
+        return builder.append("]").toString();
     }
 
     public void setCol(int col, Vector v) {
@@ -99,8 +358,10 @@ public class Matrix {
             throw new MathException("vector length must match matrix row count");
         }
 
+        physicalCol(col);
+        own();
         for(int i = 0; i < this.rowCount(); i++) {
-            this.data.get(i).set(col, v.at(i));
+            data[offset(i, col)] = v.at(i);
         }
     }
 
@@ -109,9 +370,16 @@ public class Matrix {
     }
 
     public void swapCols(int i, int j) {
-        Vector temp = this.col(i);
-        this.setCol(i, this.col(j));
-        this.setCol(j, temp);
+        physicalCol(i);
+        physicalCol(j);
+        int[] index = new int[colCount];
+        for(int k = 0; k < colCount; k++) {
+            index[k] = colIndex == null ? k : colIndex[k];
+        }
+        int temp = index[i];
+        index[i] = index[j];
+        index[j] = temp;
+        colIndex = index;
     }
 
     @Override
@@ -132,8 +400,10 @@ public class Matrix {
         }
 
         for (int i = 0; i < this.rowCount(); i++) {
-            if(!this.row(i).equals(other.row(i))) {
-                return false;
+            for (int j = 0; j < this.colCount(); j++) {
+                if(this.at(i, j) != other.at(i, j)) {
+                    return false;
+                }
             }
         }
 
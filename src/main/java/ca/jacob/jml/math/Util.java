@@ -20,6 +20,40 @@ public class Util {
         return log(value) / log(E);
     }
 
+    /**
+     * Indices that sort the given values in ascending order. The sort is stable so equal values keep their order.
+     */
+    public static int[] argsort(double[] values) {
+        int[] indices = new int[values.length];
+        for(int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+        mergeSort(values, indices, new int[indices.length], 0, indices.length);
+        return indices;
+    }
+
+    private static void mergeSort(double[] values, int[] indices, int[] buffer, int from, int to) {
+        if(to - from < 2) {
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        mergeSort(values, indices, buffer, from, middle);
+        mergeSort(values, indices, buffer, middle, to);
+        if(values[indices[middle-1]] <= values[indices[middle]]) {
+            return;
+        }
+
+        System.arraycopy(indices, from, buffer, from, to - from);
+        for(int k = from, i = from, j = middle; k < to; k++) {
+            if(j >= to || (i < middle && values[buffer[i]] <= values[buffer[j]])) {
+                indices[k] = buffer[i++];
+            } else {
+                indices[k] = buffer[j++];
+            }
+        }
+    }
+
     public static Vector exp(Vector v) {
         double[] data = new double[v.length()];
         for(int i = 0; i < data.length; i++) {
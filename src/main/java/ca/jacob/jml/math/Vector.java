@@ -12,29 +12,37 @@ import static java.lang.Math.sqrt;
 
 public class Vector implements Iterable<Double> {
     private static final Logger LOG = LoggerFactory.getLogger(Vector.class);
+    private static final int DEFAULT_CAPACITY = 10;
 
-    private List<Double> data;
+    private double[] data;
+    private int length;
+
+    // Non-null only for views, see view(). A view never writes to data, it copies itself first.
+    private View view;
 
     public Vector(int[] data) {
-        this.data = new ArrayList<Double>(Arrays.asList(new Double[data.length]));
+        this.data = new double[data.length];
         for(int i = 0; i < data.length; i++) {
-            this.data.set(i, (double)data[i]);
+            this.data[i] = data[i];
         }
+        this.length = data.length;
     }
 
     public Vector() {
-        this.data = new ArrayList<Double>();
+        this.data = new double[DEFAULT_CAPACITY];
+        this.length = 0;
     }
 
     public Vector(double[] data) {
-        this.data = arrayAsList(data);
+        this.data = data.clone();
+        this.length = data.length;
     }
 
     public Vector(String[] data) {
-        this.data = new ArrayList<Double>();
+        this.data = new double[data.length];
         for(String aData : data) {
             try {
-                this.data.add(Double.parseDouble(aData));
+                this.add(Double.parseDouble(aData));
             } catch (NumberFormatException e) {
                 throw new DataException("data must all be integers or doubles, not " + aData);
             }
@@ -42,42 +50,136 @@ public class Vector implements Iterable<Double> {
     }
 
     public Vector(List<Double> data) {
-        this.data = data;
+        this.data = new double[data.size()];
+        for(Double d : data) {
+            this.add(d);
+        }
     }
 
     public Vector(Vector vector) {
-        this.data = new ArrayList<>(vector.data);
+        if(vector.view == null) {
+            this.data = Arrays.copyOf(vector.data, vector.length);
+        } else {
+            this.data = new double[vector.length];
+            for(int i = 0; i < vector.length; i++) {
+                this.data[i] = vector.get(i);
+            }
+        }
+        this.length = vector.length;
+    }
+
+    /**
+     * Wraps the given array without copying it, so later writes to the array are seen by the vector.
+     */
+    public static Vector wrap(double[] data) {
+        Vector v = new Vector(0);
+        v.data = data;
+        v.length = data.length;
+        return v;
+    }
+
+    /**
+     * Read-only window over data where element i is data[offset + index[i]*stride], or data[offset + i*stride] when
+     * index is null. Nothing is copied until the vector is written to.
+     */
+    static Vector view(double[] data, int offset, int stride, int[] index, int length) {
+        Vector v = new Vector(0);
+        v.data = data;
+        v.length = length;
+        v.view = new View(offset, stride, index);
+        return v;
+    }
+
+    private Vector(int capacity) {
+        this.data = new double[capacity];
+        this.length = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity > data.length) {
+            int newCapacity = Math.max(capacity, data.length + (data.length >> 1) + 1);
+            data = Arrays.copyOf(data, newCapacity);
+        }
+    }
+
+    private double get(int i) {
+        if(view == null) {
+            return data[i];
+        }
+        return data[view.offset + (view.index == null ? i : view.index[i]) * view.stride];
+    }
+
+    private void own() {
+        if(view != null) {
+            double[] copy = new double[length];
+            for(int i = 0; i < length; i++) {
+                copy[i] = get(i);
+            }
+            data = copy;
+            view = null;
+        }
+    }
+
+    private void checkIndex(int i) {
+        if(i < 0 || i >= length) {
+            throw new IndexOutOfBoundsException("index: " + i + ", length: " + length);
+        }
     }
 
     public void add(int value) {
-        data.add((double)value);
+        add((double)value);
     }
 
     public void add(double value) {
-        data.add(value);
+        own();
+        ensureCapacity(length + 1);
+        data[length++] = value;
     }
 
     public void concat(Vector v) {
-        this.data.addAll(v.getData());
+        own();
+        ensureCapacity(length + v.length);
+        if(v.view == null) {
+            System.arraycopy(v.data, 0, data, length, v.length);
+        } else {
+            for(int i = 0; i < v.length; i++) {
+                data[length + i] = v.get(i);
+            }
+        }
+        length += v.length;
     }
 
     public Vector subVector(int from, int to) {
-        return new Vector(this.data.subList(from, to));
+        if(from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + length);
+        }
+        if(view == null) {
+            return wrap(Arrays.copyOfRange(data, from, to));
+        }
+        Vector v = wrap(new double[to-from]);
+        for(int i = from; i < to; i++) {
+            v.data[i-from] = get(i);
+        }
+        return v;
     }
 
     public void remove(int i) {
-        data.remove(i);
+        checkIndex(i);
+        own();
+        System.arraycopy(data, i+1, data, i, length-i-1);
+        length--;
     }
 
     public double at(int i) {
-        return data.get(i);
+        checkIndex(i);
+        return get(i);
     }
 
     public Vector at(Vector indices) {
-        Vector v = new Vector(new double[indices.length()]);
+        Vector v = wrap(new double[indices.length()]);
         for(int i = 0; i < indices.length(); i++) {
-            LOG.debug("setting index {} to {}", i, this.data.get(v.intAt(i)));
-            v.set(i, this.data.get(indices.intAt(i)));
+            LOG.trace("setting index {} to {}", i, indices.at(i));
+            v.data[i] = this.at(indices.intAt(i));
         }
         return v;
     }
@@ -99,7 +201,8 @@ public class Vector implements Iterable<Double> {
     }
 
     public void fill(double value) {
-        Collections.fill(data, value);
+        own();
+        Arrays.fill(data, 0, length, value);
     }
 
     public double dot(Vector other) {
@@ -108,8 +211,8 @@ public class Vector implements Iterable<Double> {
         }
 
         double sum = 0.;
-        for(int i = 0; i < this.length(); i++) {
-            sum += this.at(i) * other.at(i);
+        for(int i = 0; i < length; i++) {
+            sum += get(i) * other.get(i);
         }
 
         return sum;
@@ -117,40 +220,68 @@ public class Vector implements Iterable<Double> {
 
     public double sum() {
         double sum = 0.;
-        for(int i = 0; i < this.length(); i++) {
-            sum += this.at(i);
+        for(int i = 0; i < length; i++) {
+            sum += get(i);
         }
         return sum;
     }
 
     public int length() {
-        return data.size();
+        return length;
     }
 
     public Vector mul(double value) {
-        Vector v = new Vector(new double[this.length()]);
-        for(int i = 0; i < length(); i++) {
-            v.set(i, this.at(i) * value);
-        }
+        Vector v = this.clone();
+        v.mulInPlace(value);
         return v;
     }
 
     public Vector mul(Vector other) {
+        Vector v = this.clone();
+        v.mulInPlace(other);
+        return v;
+    }
+
+    public void mulInPlace(double value) {
+        own();
+        for(int i = 0; i < length; i++) {
+            data[i] *= value;
+        }
+    }
+
+    public void mulInPlace(Vector other) {
         if(this.length() != other.length()) {
             throw new MathException("vector lengths must match");
         }
 
-        Vector v = new Vector(new double[this.length()]);
-        for(int i = 0; i < this.length(); i++) {
-            v.set(i, this.at(i) * other.at(i));
+        own();
+        for(int i = 0; i < length; i++) {
+            data[i] *= other.get(i);
+        }
+    }
+
+    public void addInPlace(double value) {
+        own();
+        for(int i = 0; i < length; i++) {
+            data[i] += value;
+        }
+    }
+
+    public void addInPlace(Vector other) {
+        if(this.length() != other.length()) {
+            throw new MathException("vector lengths must match");
+        }
+
+        own();
+        for(int i = 0; i < length; i++) {
+            data[i] += other.get(i);
         }
-        return v;
     }
 
     public Vector div(double value) {
-        Vector v = new Vector(new double[this.length()]);
-        for(int i = 0; i < length(); i++) {
-            v.set(i, this.at(i) / value);
+        Vector v = wrap(new double[this.length()]);
+        for(int i = 0; i < length; i++) {
+            v.data[i] = get(i) / value;
         }
         return v;
     }
@@ -160,26 +291,66 @@ public class Vector implements Iterable<Double> {
     }
 
     public void set(int i, double value) {
-        data.set(i, value);
+        checkIndex(i);
+        own();
+        data[i] = value;
     }
 
     public void set(int i, int value) {
-        data.set(i, (double)value);
+        set(i, (double)value);
     }
 
+    /**
+     * Boxed copy of the values. Prefer {@link #toArray()} or {@link #forEachIndexed(IndexedConsumer)} in hot loops.
+     */
     public List<Double> getData() {
-        return data;
+        return arrayAsList(toArray());
+    }
+
+    /**
+     * Copy of the values as a primitive array.
+     */
+    public double[] toArray() {
+        double[] array = new double[length];
+        toArray(array, 0);
+        return array;
+    }
+
+    /**
+     * Copies the values into the given array starting at offset, no allocation.
+     */
+    public void toArray(double[] destination, int offset) {
+        if(view == null) {
+            System.arraycopy(data, 0, destination, offset, length);
+            return;
+        }
+        for(int i = 0; i < length; i++) {
+            destination[offset + i] = get(i);
+        }
+    }
+
+    public void forEachIndexed(IndexedConsumer consumer) {
+        for(int i = 0; i < length; i++) {
+            consumer.accept(i, get(i));
+        }
     }
 
     public void swap(int i, int j) {
-        double tmp = data.get(i);
-        data.set(j, data.get(i));
-        data.set(i, tmp);
+        double tmp = this.at(i);
+        this.set(j, this.at(i));
+        this.set(i, tmp);
     }
 
     @Override
     public String toString() {
-        return data.toString();
+        StringBuilder builder = new StringBuilder("[");
+        for(int i = 0; i < length; i++) {
+            if(i > 0) {
+                builder.append(", ");
+            }
+            builder.append(get(i));
+        }
+        return builder.append("]").toString();
     }
 
     @Override
@@ -196,8 +367,8 @@ public class Vector implements Iterable<Double> {
             return false;
         }
 
-        for (int i = 0; i < this.length(); i++) {
-            if(this.at(i) != other.at(i)) {
+        for (int i = 0; i < length; i++) {
+            if(get(i) != other.get(i)) {
                 return false;
             }
         }
@@ -206,18 +377,21 @@ public class Vector implements Iterable<Double> {
     }
 
     @Override
-    public Iterator<Double> iterator() {
-        return new Iterator<Double>() {
-            private Integer currentIndex = 0;
+    public PrimitiveIterator.OfDouble iterator() {
+        return new PrimitiveIterator.OfDouble() {
+            private int currentIndex = 0;
 
             @Override
             public boolean hasNext() {
-                return currentIndex < length();
+                return currentIndex < length;
             }
 
             @Override
-            public Double next() {
-                return at(currentIndex++);
+            public double nextDouble() {
+                if(currentIndex >= length) {
+                    throw new NoSuchElementException();
+                }
+                return get(currentIndex++);
             }
         };
     }
@@ -228,17 +402,17 @@ public class Vector implements Iterable<Double> {
 
     public Vector replace(int one, int two) {
         Vector v = this.clone();
-        for(int i = 0; i < this.length();  i++) {
-            if(v.at(i) == one) {
-                v.set(i, two);
+        for(int i = 0; i < length;  i++) {
+            if(v.data[i] == one) {
+                v.data[i] = two;
             }
         }
         return v;
     }
 
     public boolean contains(int num) {
-        for(int i = 0; i < data.size(); i++) {
-            if(this.intAt(i) == num) {
+        for(int i = 0; i < length; i++) {
+            if((int)get(i) == num) {
                 return true;
             }
         }
@@ -246,8 +420,8 @@ public class Vector implements Iterable<Double> {
     }
 
     private boolean contains(double num) {
-        for(int i = 0; i < data.size(); i++) {
-            if(this.at(i) == num) {
+        for(int i = 0; i < length; i++) {
+            if(get(i) == num) {
                 return true;
             }
         }
@@ -255,25 +429,23 @@ public class Vector implements Iterable<Double> {
     }
 
     public Vector sub(double mean) {
-        Vector v = new Vector(new double[this.length()]);
-        for(int i = 0; i < length(); i++) {
-            v.set(i, this.at(i) - mean);
-        }
+        Vector v = this.clone();
+        v.addInPlace(-mean);
         return v;
     }
 
     public Vector pow(int n) {
-        Vector v = new Vector(new double[this.length()]);
-        for(int i = 0; i < length(); i++) {
-            v.set(i, java.lang.Math.pow(this.at(i), n));
+        Vector v = wrap(new double[this.length()]);
+        for(int i = 0; i < length; i++) {
+            v.data[i] = java.lang.Math.pow(get(i), n);
         }
         return v;
     }
 
     public double prod() {
         double sum = 1;
-        for(Double d : this) {
-            sum *= d;
+        for(int i = 0; i < length; i++) {
+            sum *= get(i);
         }
         return sum;
     }
@@ -284,8 +456,8 @@ public class Vector implements Iterable<Double> {
 
     public int count(double value) {
         int count = 0;
-        for(Double d : this.data) {
-            if(d == value) {
+        for(int i = 0; i < length; i++) {
+            if(get(i) == value) {
                 count++;
             }
         }
@@ -298,37 +470,60 @@ public class Vector implements Iterable<Double> {
         }
 
         double mean = this.mean();
-        double variance = this.sub(mean).pow(2).sum() / (this.length() - 1);
+        double sum = 0.;
+        for(int i = 0; i < length; i++) {
+            double difference = get(i) - mean;
+            sum += difference * difference;
+        }
+        double variance = sum / (this.length() - 1);
         return sqrt(variance);
     }
 
     public Vector sub(Vector other) {
-        Vector v = new Vector(new double[other.length()]);
+        Vector v = wrap(new double[other.length()]);
         for(int i = 0; i < other.length(); i++) {
-            v.set(i, this.at(i)-other.at(i));
+            v.data[i] = this.at(i) - other.get(i);
         }
         return v;
     }
 
     public void sort() {
-        Collections.sort(data);
+        own();
+        Arrays.sort(data, 0, length);
     }
 
     public Vector unique() {
         Vector unique = new Vector();
-        for(double i : this) {
-            if(!unique.contains(i)) {
-                unique.add(i);
+        for(int i = 0; i < length; i++) {
+            double value = get(i);
+            if(!unique.contains(value)) {
+                unique.add(value);
             }
         }
         return unique;
     }
 
     public Vector add(Vector vector) {
-        Vector v = new Vector(new double[this.length()]);
-        for(int i = 0; i < length(); i++) {
-            v.set(i, this.at(i)+vector.at(i));
+        Vector v = wrap(new double[this.length()]);
+        for(int i = 0; i < length; i++) {
+            v.data[i] = get(i) + vector.at(i);
         }
         return v;
     }
+
+    private static class View {
+        private final int offset;
+        private final int stride;
+        private final int[] index;
+
+        private View(int offset, int stride, int[] index) {
+            this.offset = offset;
+            this.stride = stride;
+            this.index = index;
+        }
+    }
+
+    public interface IndexedConsumer {
+        void accept(int i, double value);
+    }
 }
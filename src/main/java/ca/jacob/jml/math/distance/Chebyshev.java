@@ -0,0 +1,45 @@
+package ca.jacob.jml.math.distance;
+
+import ca.jacob.jml.math.MathException;
+import ca.jacob.jml.math.Vector;
+
+import static java.lang.Math.abs;
+
+/**
+ * Largest difference over the attributes.
+ */
+public class Chebyshev implements Distance {
+    @Override
+    public double distance(Vector one, Vector two) {
+        if(one.length() != two.length()) {
+            throw new MathException("vector lengths must match");
+        }
+
+        double max = 0;
+        for(int i = 0; i < one.length(); i++) {
+            max = Math.max(max, abs(one.at(i) - two.at(i)));
+        }
+        return max;
+    }
+
+    @Override
+    public double distance(double[] one, double[] two) {
+        return distance(one, two, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public double distance(double[] one, double[] two, double cutoff) {
+        if(one.length != two.length) {
+            throw new MathException("vector lengths must match");
+        }
+
+        double max = 0;
+        for(int i = 0; i < one.length; i++) {
+            max = Math.max(max, abs(one[i] - two[i]));
+            if(max > cutoff) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return max;
+    }
+}
@@ -4,4 +4,24 @@ import ca.jacob.jml.math.Vector;
 
 public interface Distance {
     double distance(Vector one, Vector two);
+
+    default double distance(double[] one, double[] two) {
+        return distance(Vector.wrap(one), Vector.wrap(two));
+    }
+
+    /**
+     * Same as {@link #distance(double[], double[])} as long as the distance is at most cutoff. Past the cutoff the
+     * implementation may stop early and return any value greater than cutoff, so far candidates are cheap to reject.
+     */
+    default double distance(double[] one, double[] two, double cutoff) {
+        return distance(one, two);
+    }
+
+    /**
+     * Whether the distance satisfies the triangle inequality. A distance that does not, like {@link SquaredEuclidean},
+     * must be the square of one that does to be searched with a {@link ca.jacob.jml.neighbors.BallTree}.
+     */
+    default boolean isMetric() {
+        return true;
+    }
 }
@@ -1,5 +1,6 @@
 package ca.jacob.jml.math.distance;
 
+import ca.jacob.jml.math.MathException;
 import ca.jacob.jml.math.Vector;
 
 import static java.lang.Math.sqrt;
@@ -7,6 +8,42 @@ import static java.lang.Math.sqrt;
 public class Euclidean implements Distance {
     @Override
     public double distance(Vector one, Vector two) {
-        return sqrt(one.sub(two).pow(2).sum());
+        if(one.length() != two.length()) {
+            throw new MathException("vector lengths must match");
+        }
+
+        double sum = 0;
+        for(int i = 0; i < one.length(); i++) {
+            double difference = one.at(i) - two.at(i);
+            sum += difference * difference;
+        }
+        return sqrt(sum);
+    }
+
+    @Override
+    public double distance(double[] one, double[] two) {
+        return distance(one, two, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Compares the running sum to the squared cutoff, and only stops once the root itself is past the cutoff so that
+     * a distance rounding to exactly the cutoff is still returned.
+     */
+    @Override
+    public double distance(double[] one, double[] two, double cutoff) {
+        if(one.length != two.length) {
+            throw new MathException("vector lengths must match");
+        }
+
+        double limit = cutoff * cutoff;
+        double sum = 0;
+        for(int i = 0; i < one.length; i++) {
+            double difference = one[i] - two[i];
+            sum += difference * difference;
+            if(sum > limit && sqrt(sum) > cutoff) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return sqrt(sum);
     }
 }
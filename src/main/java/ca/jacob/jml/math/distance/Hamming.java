@@ -1,12 +1,41 @@
 package ca.jacob.jml.math.distance;
 
+import ca.jacob.jml.math.MathException;
 import ca.jacob.jml.math.Vector;
 
-import static ca.jacob.jml.Util.error;
-
 public class Hamming implements Distance {
     @Override
     public double distance(Vector one, Vector two) {
-        return error(one, two).sum();
+        if(one.length() != two.length()) {
+            throw new MathException("vector lengths must match");
+        }
+
+        int count = 0;
+        for(int i = 0; i < one.length(); i++) {
+            if(one.at(i) != two.at(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public double distance(double[] one, double[] two) {
+        return distance(one, two, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public double distance(double[] one, double[] two, double cutoff) {
+        if(one.length != two.length) {
+            throw new MathException("vector lengths must match");
+        }
+
+        int count = 0;
+        for(int i = 0; i < one.length; i++) {
+            if(one[i] != two[i] && ++count > cutoff) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return count;
     }
 }
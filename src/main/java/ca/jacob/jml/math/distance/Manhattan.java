@@ -0,0 +1,42 @@
+package ca.jacob.jml.math.distance;
+
+import ca.jacob.jml.math.MathException;
+import ca.jacob.jml.math.Vector;
+
+import static java.lang.Math.abs;
+
+public class Manhattan implements Distance {
+    @Override
+    public double distance(Vector one, Vector two) {
+        if(one.length() != two.length()) {
+            throw new MathException("vector lengths must match");
+        }
+
+        double sum = 0;
+        for(int i = 0; i < one.length(); i++) {
+            sum += abs(one.at(i) - two.at(i));
+        }
+        return sum;
+    }
+
+    @Override
+    public double distance(double[] one, double[] two) {
+        return distance(one, two, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public double distance(double[] one, double[] two, double cutoff) {
+        if(one.length != two.length) {
+            throw new MathException("vector lengths must match");
+        }
+
+        double sum = 0;
+        for(int i = 0; i < one.length; i++) {
+            sum += abs(one[i] - two[i]);
+            if(sum > cutoff) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return sum;
+    }
+}
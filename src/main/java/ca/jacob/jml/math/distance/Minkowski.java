@@ -0,0 +1,60 @@
+package ca.jacob.jml.math.distance;
+
+import ca.jacob.jml.math.MathException;
+import ca.jacob.jml.math.Vector;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.pow;
+
+/**
+ * The p-th root of the sum of the differences to the power p, p = 1 is {@link Manhattan} and p = 2 is
+ * {@link Euclidean}.
+ */
+public class Minkowski implements Distance {
+    private final double p;
+
+    public Minkowski(double p) {
+        if(p < 1) {
+            throw new MathException("p must be at least 1");
+        }
+        this.p = p;
+    }
+
+    @Override
+    public double distance(Vector one, Vector two) {
+        if(one.length() != two.length()) {
+            throw new MathException("vector lengths must match");
+        }
+
+        double sum = 0;
+        for(int i = 0; i < one.length(); i++) {
+            sum += pow(abs(one.at(i) - two.at(i)), p);
+        }
+        return pow(sum, 1 / p);
+    }
+
+    @Override
+    public double distance(double[] one, double[] two) {
+        return distance(one, two, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Stops once the root of the running sum is past the cutoff, like {@link Euclidean}.
+     */
+    @Override
+    public double distance(double[] one, double[] two, double cutoff) {
+        if(one.length != two.length) {
+            throw new MathException("vector lengths must match");
+        }
+
+        double limit = pow(cutoff, p);
+        double sum = 0;
+        for(int i = 0; i < one.length; i++) {
+            sum += pow(abs(one[i] - two[i]), p);
+            if(sum > limit && pow(sum, 1 / p) > cutoff) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return pow(sum, 1 / p);
+    }
+}
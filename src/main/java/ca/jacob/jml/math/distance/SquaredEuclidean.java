@@ -0,0 +1,50 @@
+package ca.jacob.jml.math.distance;
+
+import ca.jacob.jml.math.MathException;
+import ca.jacob.jml.math.Vector;
+
+/**
+ * Euclidean distance without the square root. It is not a metric, but it ranks neighbours the same way for less.
+ */
+public class SquaredEuclidean implements Distance {
+    @Override
+    public boolean isMetric() {
+        return false;
+    }
+
+    @Override
+    public double distance(Vector one, Vector two) {
+        if(one.length() != two.length()) {
+            throw new MathException("vector lengths must match");
+        }
+
+        double sum = 0;
+        for(int i = 0; i < one.length(); i++) {
+            double difference = one.at(i) - two.at(i);
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    @Override
+    public double distance(double[] one, double[] two) {
+        return distance(one, two, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public double distance(double[] one, double[] two, double cutoff) {
+        if(one.length != two.length) {
+            throw new MathException("vector lengths must match");
+        }
+
+        double sum = 0;
+        for(int i = 0; i < one.length; i++) {
+            double difference = one[i] - two[i];
+            sum += difference * difference;
+            if(sum > cutoff) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return sum;
+    }
+}
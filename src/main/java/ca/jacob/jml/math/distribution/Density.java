@@ -0,0 +1,22 @@
+package ca.jacob.jml.math.distribution;
+
+/**
+ * A distribution whose parameters are fixed, with the constants they imply computed once. Create one per (class,
+ * attribute) and evaluate it for every sample.
+ */
+public interface Density {
+    public double logDensity(double x);
+
+    public default double density(double x) {
+        return Math.exp(logDensity(x));
+    }
+
+    /**
+     * Writes the log density of every value of xs to out.
+     */
+    public default void logDensity(double[] xs, double[] out) {
+        for(int i = 0; i < xs.length; i++) {
+            out[i] = logDensity(xs[i]);
+        }
+    }
+}
@@ -2,4 +2,30 @@ package ca.jacob.jml.math.distribution;
 
 public interface Distribution {
     public double probability(double x, double mean, double stdev);
+
+    /**
+     * Natural log of {@link #probability(double, double, double)}, negative infinity where it is 0. Distributions
+     * override it to stay finite where the probability underflows.
+     */
+    public default double logProbability(double x, double mean, double stdev) {
+        return Math.log(probability(x, mean, stdev));
+    }
+
+    /**
+     * The distribution with the given mean and standard deviation. Distributions override it to compute their
+     * normalising constants once instead of on every call.
+     */
+    public default Density density(final double mean, final double stdev) {
+        return new Density() {
+            @Override
+            public double logDensity(double x) {
+                return logProbability(x, mean, stdev);
+            }
+
+            @Override
+            public double density(double x) {
+                return probability(x, mean, stdev);
+            }
+        };
+    }
 }
@@ -4,7 +4,10 @@ import ca.jacob.jml.exceptions.DataException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+
 import static java.lang.Math.PI;
+import static java.lang.Math.log;
 import static java.lang.Math.pow;
 import static java.lang.Math.sqrt;
 
@@ -26,8 +29,86 @@ public class Gaussian implements Distribution {
         return probability;
     }
 
+    @Override
+    public double logProbability(double x, double mean, double stdev) {
+        if(pow(stdev, 2) == 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+
+        double logProbability = -pow(x-mean, 2)/(2*pow(stdev, 2)) - log(sqrt(2*PI) * stdev);
+
+        if(Double.isNaN(logProbability)) {
+            LOG.error("x: {}, accuracy: {}, stdev: {}", x, mean, stdev);
+            throw new DataException("something went wrong");
+        }
+        return logProbability;
+    }
+
+    @Override
+    public Density density(double mean, double stdev) {
+        return new GaussianDensity(mean, stdev);
+    }
+
     @Override
     public String toString() {
         return "Gaussian";
     }
+
+    /**
+     * Caches -log(stdev * sqrt(2 PI)) and 1 / (2 stdev^2). A standard deviation of 0 has density 0 everywhere, like
+     * {@link #probability(double, double, double)}, and parameters that would make every log density NaN are rejected
+     * up front, like {@link #logProbability(double, double, double)} rejects them.
+     */
+    private static class GaussianDensity implements Density {
+        private final double mean;
+        private final boolean degenerate;
+        private final double normalization; // 1 / (stdev * sqrt(2 PI))
+        private final double logNormalization;
+        private final double twoVariance;
+        private final double inverseTwoVariance;
+
+        private GaussianDensity(double mean, double stdev) {
+            if(Double.isNaN(mean) || !(stdev >= 0)) {
+                LOG.error("mean: {}, stdev: {}", mean, stdev);
+                throw new DataException("the mean must be a number and the standard deviation non negative");
+            }
+
+            this.mean = mean;
+            this.degenerate = pow(stdev, 2) == 0;
+            this.normalization = 1 / (sqrt(2*PI) * stdev);
+            this.logNormalization = -log(sqrt(2*PI) * stdev);
+            this.twoVariance = 2*pow(stdev, 2);
+            this.inverseTwoVariance = 1 / twoVariance;
+        }
+
+        @Override
+        public double logDensity(double x) {
+            if(degenerate) {
+                return Double.NEGATIVE_INFINITY;
+            }
+            double difference = x - mean;
+            return logNormalization - difference * difference * inverseTwoVariance;
+        }
+
+        @Override
+        public double density(double x) {
+            if(degenerate) {
+                return 0;
+            }
+            double difference = x - mean;
+            return normalization * Math.exp(-(difference * difference)/twoVariance);
+        }
+
+        @Override
+        public void logDensity(double[] xs, double[] out) {
+            if(degenerate) {
+                Arrays.fill(out, 0, xs.length, Double.NEGATIVE_INFINITY);
+                return;
+            }
+            for(int i = 0; i < xs.length; i++) {
+                double difference = xs[i] - mean;
+                out[i] = logNormalization - difference * difference * inverseTwoVariance;
+            }
+        }
+    }
 }
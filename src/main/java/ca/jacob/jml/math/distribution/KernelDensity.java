@@ -0,0 +1,83 @@
+package ca.jacob.jml.math.distribution;
+
+import ca.jacob.jml.exceptions.DataException;
+
+import java.util.Arrays;
+
+import static java.lang.Math.PI;
+import static java.lang.Math.exp;
+import static java.lang.Math.log;
+import static java.lang.Math.pow;
+import static java.lang.Math.sqrt;
+
+/**
+ * Gaussian kernel density estimate of a sample, the mean of a Gaussian of standard deviation bandwidth around every
+ * value. The log density sums the kernels relative to the largest one, so it stays finite far from the sample.
+ */
+public class KernelDensity implements Density {
+    private final double[] values;
+    private final double bandwidth;
+    private final double logNormalization; // -log(n * bandwidth * sqrt(2 PI))
+    private final double inverseTwoVariance;
+
+    /**
+     * With the bandwidth of Silverman's rule of thumb, 1.06 stdev n^(-1/5), or 1 when all the values are equal.
+     */
+    public KernelDensity(double[] values) {
+        this(values, silverman(values));
+    }
+
+    public KernelDensity(double[] values, double bandwidth) {
+        if(values.length == 0) {
+            throw new DataException("a kernel density needs at least one value");
+        }
+        if(!(bandwidth > 0)) {
+            throw new DataException("the bandwidth must be positive");
+        }
+        this.values = values.clone();
+        Arrays.sort(this.values);
+        this.bandwidth = bandwidth;
+        this.logNormalization = -log(values.length * bandwidth * sqrt(2*PI));
+        this.inverseTwoVariance = 1 / (2 * bandwidth * bandwidth);
+    }
+
+    @Override
+    public double logDensity(double x) {
+        // the nearest value has the largest kernel
+        int nearest = Arrays.binarySearch(values, x);
+        if(nearest < 0) {
+            int insertion = -nearest - 1;
+            if(insertion == values.length || (insertion > 0 && x - values[insertion-1] < values[insertion] - x)) {
+                insertion--;
+            }
+            nearest = insertion;
+        }
+
+        double maxExponent = -pow(x - values[nearest], 2) * inverseTwoVariance;
+        double sum = 0;
+        for(double value : values) {
+            double difference = x - value;
+            sum += exp(-difference * difference * inverseTwoVariance - maxExponent);
+        }
+        return logNormalization + maxExponent + log(sum);
+    }
+
+    public double getBandwidth() {
+        return bandwidth;
+    }
+
+    private static double silverman(double[] values) {
+        int n = values.length;
+        double mean = 0;
+        for(double value : values) {
+            mean += value / n;
+        }
+        double sum = 0;
+        for(double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        double stdev = n > 1 ? sqrt(sum / (n - 1)) : 0;
+        double bandwidth = 1.06 * stdev * pow(n, -0.2);
+        return bandwidth > 0 ? bandwidth : 1;
+    }
+}
@@ -0,0 +1,50 @@
+package ca.jacob.jml.math.distribution;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.exp;
+import static java.lang.Math.log;
+import static java.lang.Math.sqrt;
+
+/**
+ * Laplace distribution of the given mean and standard deviation, so of scale stdev / sqrt(2).
+ */
+public class Laplace implements Distribution {
+    @Override
+    public double probability(double x, double mean, double stdev) {
+        if(stdev == 0) {
+            return 0;
+        }
+        double scale = stdev / sqrt(2);
+        return exp(-abs(x-mean)/scale) / (2*scale);
+    }
+
+    @Override
+    public double logProbability(double x, double mean, double stdev) {
+        if(stdev == 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        double scale = stdev / sqrt(2);
+        return -abs(x-mean)/scale - log(2*scale);
+    }
+
+    @Override
+    public Density density(final double mean, double stdev) {
+        final boolean degenerate = stdev == 0;
+        final double inverseScale = sqrt(2) / stdev;
+        final double logNormalization = -log(2*stdev / sqrt(2));
+        return new Density() {
+            @Override
+            public double logDensity(double x) {
+                if(degenerate) {
+                    return Double.NEGATIVE_INFINITY;
+                }
+                return logNormalization - abs(x-mean) * inverseScale;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "Laplace";
+    }
+}
@@ -0,0 +1,58 @@
+package ca.jacob.jml.math.distribution;
+
+import static java.lang.Math.PI;
+import static java.lang.Math.exp;
+import static java.lang.Math.log;
+import static java.lang.Math.sqrt;
+
+/**
+ * Log-normal distribution of the given mean and standard deviation, those of the values and not of their logs. The
+ * logs then have variance log(1 + stdev^2 / mean^2) and mean log(mean) minus half of it. Only positive values with a
+ * positive mean have a density.
+ */
+public class LogNormal implements Distribution {
+    @Override
+    public double probability(double x, double mean, double stdev) {
+        return exp(logProbability(x, mean, stdev));
+    }
+
+    @Override
+    public double logProbability(double x, double mean, double stdev) {
+        return density(mean, stdev).logDensity(x);
+    }
+
+    @Override
+    public Density density(double mean, double stdev) {
+        return new LogNormalDensity(mean, stdev);
+    }
+
+    @Override
+    public String toString() {
+        return "LogNormal";
+    }
+
+    private static class LogNormalDensity implements Density {
+        private final boolean degenerate;
+        private final double logMean; // of the logs of the values
+        private final double logNormalization; // -log(logStdev * sqrt(2 PI))
+        private final double inverseTwoVariance; // 1 / (2 logStdev^2)
+
+        private LogNormalDensity(double mean, double stdev) {
+            double variance = log(1 + stdev * stdev / (mean * mean));
+            this.degenerate = mean <= 0 || stdev == 0;
+            this.logMean = log(mean) - variance / 2;
+            this.logNormalization = -log(sqrt(2*PI*variance));
+            this.inverseTwoVariance = 1 / (2*variance);
+        }
+
+        @Override
+        public double logDensity(double x) {
+            if(degenerate || x <= 0) {
+                return Double.NEGATIVE_INFINITY;
+            }
+            double logX = log(x);
+            double difference = logX - logMean;
+            return logNormalization - logX - difference * difference * inverseTwoVariance;
+        }
+    }
+}
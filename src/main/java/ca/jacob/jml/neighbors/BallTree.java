@@ -0,0 +1,59 @@
+package ca.jacob.jml.neighbors;
+
+import ca.jacob.jml.math.Matrix;
+import ca.jacob.jml.math.distance.Distance;
+
+/**
+ * Bounds every node by a ball around the mean of its rows. By the triangle inequality no row of the node is closer
+ * to the query than its distance to the center minus the radius. A distance that is not a metric is taken to be the
+ * square of one, as {@link Distance#isMetric()} requires, and the bound is then the square of the difference of the
+ * square roots. Unlike boxes, balls stay tight when there are many attributes.
+ */
+public class BallTree extends SpatialIndex {
+    private final double[][] centers;
+    private final double[] radii;
+    private final boolean metric;
+
+    public BallTree(Matrix x, Distance df) {
+        super(x, df);
+        this.metric = df.isMetric();
+        this.centers = new double[capacity()][];
+        this.radii = new double[capacity()];
+        build();
+    }
+
+    @Override
+    protected void summarize(int node) {
+        double[] center = new double[dimension];
+        for(int p = from[node]; p < to[node]; p++) {
+            double[] row = values[order[p]];
+            for(int j = 0; j < dimension; j++) {
+                center[j] += row[j];
+            }
+        }
+        int count = to[node] - from[node];
+        for(int j = 0; j < dimension; j++) {
+            center[j] /= count;
+        }
+        centers[node] = center;
+
+        double radius = 0;
+        for(int p = from[node]; p < to[node]; p++) {
+            radius = Math.max(radius, df.distance(values[order[p]], center));
+        }
+        radii[node] = radius;
+    }
+
+    @Override
+    protected double bound(int node, double[] e, double cutoff, double[] scratch) {
+        double radius = radii[node];
+        if(metric) {
+            return Math.max(0, df.distance(e, centers[node], cutoff + radius) - radius);
+        }
+
+        double root = Math.sqrt(radius);
+        double limit = Math.sqrt(cutoff) + root;
+        double distance = Math.sqrt(df.distance(e, centers[node], limit * limit));
+        return distance <= root ? 0 : (distance - root) * (distance - root);
+    }
+}
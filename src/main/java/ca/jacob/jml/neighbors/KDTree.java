@@ -0,0 +1,59 @@
+package ca.jacob.jml.neighbors;
+
+import ca.jacob.jml.math.Matrix;
+import ca.jacob.jml.math.distance.Distance;
+
+/**
+ * Bounds every node by the box around its rows. The bound is the distance from the query to the closest point of the
+ * box, which is a lower bound for any distance that does not shrink when a coordinate moves away from the query, such
+ * as the Euclidean and Hamming distances.
+ */
+public class KDTree extends SpatialIndex {
+    private final double[][] min;
+    private final double[][] max;
+
+    public KDTree(Matrix x, Distance df) {
+        super(x, df);
+        this.min = new double[capacity()][];
+        this.max = new double[capacity()][];
+        build();
+    }
+
+    @Override
+    protected void summarize(int node) {
+        double[] min = new double[dimension];
+        double[] max = new double[dimension];
+        for(int j = 0; j < dimension; j++) {
+            min[j] = Double.POSITIVE_INFINITY;
+            max[j] = Double.NEGATIVE_INFINITY;
+        }
+        for(int p = from[node]; p < to[node]; p++) {
+            double[] row = values[order[p]];
+            for(int j = 0; j < dimension; j++) {
+                min[j] = Math.min(min[j], row[j]);
+                max[j] = Math.max(max[j], row[j]);
+            }
+        }
+        this.min[node] = min;
+        this.max[node] = max;
+    }
+
+    @Override
+    protected double bound(int node, double[] e, double cutoff, double[] scratch) {
+        double[] min = this.min[node];
+        double[] max = this.max[node];
+        boolean inside = true;
+        for(int j = 0; j < dimension; j++) {
+            double value = e[j];
+            if(value < min[j]) {
+                value = min[j];
+                inside = false;
+            } else if(value > max[j]) {
+                value = max[j];
+                inside = false;
+            }
+            scratch[j] = value;
+        }
+        return inside ? 0 : df.distance(scratch, e, cutoff);
+    }
+}
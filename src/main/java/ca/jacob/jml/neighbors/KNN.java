@@ -7,13 +7,29 @@ import ca.jacob.jml.Dataset;
 
 public class KNN implements Algorithm {
     private static final String NAME = "K-Nearest Neighbour";
+    public static final int BRUTE_FORCE = 0;
+    public static final int KD_TREE = 1;
+    public static final int BALL_TREE = 2;
+    public static final int AUTO = 3;
+    public static final int KD_TREE_MAX_DIMENSION = 16; // boxes stop pruning much with more attributes
 
     private int k;
     private Distance df;
+    private int index;
 
     public KNN(int k, Distance df) {
+        this(k, df, BRUTE_FORCE);
+    }
+
+    /**
+     * @param index how the training rows are searched, one of BRUTE_FORCE, KD_TREE, BALL_TREE or AUTO, which picks a
+     *              KD-tree for at most KD_TREE_MAX_DIMENSION attributes or a distance that is not a metric, and a ball
+     *              tree otherwise
+     */
+    public KNN(int k, Distance df, int index) {
         this.k = k;
         this.df = df;
+        this.index = index;
     }
 
     @Override
@@ -21,7 +37,21 @@ public class KNN implements Algorithm {
         if(k > d.sampleCount()) {
             throw new KNNException("k must be smaller or equal to data set sample count");
         }
-        return new KNNModel(d, k, df);
+        int index = this.index;
+        if(index == AUTO) {
+            index = d.attributeCount() <= KD_TREE_MAX_DIMENSION || !df.isMetric() ? KD_TREE : BALL_TREE;
+        }
+
+        switch(index) {
+            case BRUTE_FORCE:
+                return new KNNModel(d, k, df);
+            case KD_TREE:
+                return new KNNModel(d, k, df, new KDTree(d.getX(), df));
+            case BALL_TREE:
+                return new KNNModel(d, k, df, new BallTree(d.getX(), df));
+            default:
+                throw new KNNException("unknown index");
+        }
     }
 
     @Override
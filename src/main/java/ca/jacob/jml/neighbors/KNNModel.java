@@ -3,66 +3,224 @@ package ca.jacob.jml.neighbors;
 import ca.jacob.jml.Dataset;
 import ca.jacob.jml.Model;
 import ca.jacob.jml.math.distance.Distance;
+import ca.jacob.jml.math.distance.Euclidean;
+import ca.jacob.jml.math.distance.Hamming;
 import ca.jacob.jml.math.Matrix;
 import ca.jacob.jml.math.Vector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Map;
-import java.util.TreeMap;
+import static ca.jacob.jml.Dataset.DISCRETE;
 
 public class KNNModel extends Model {
     private static final Logger LOG = LoggerFactory.getLogger(KNNModel.class);
+    public static final int QUERY_BLOCK = 64;
+    public static final int TRAINING_BLOCK = 256; // 256 rows of 16 attributes fit in a 32KB L1 cache
+    private static final double EXPANSION_ERROR = 4 * Math.ulp(1.0); // per attribute, relative to ||a||^2 + ||b||^2
 
     private Dataset dataset;
     private int k;
     private Distance df;
+    private SpatialIndex index;
+    private int[] classes;
+    private Vector uniqueClasses;
+
+    private volatile double[][] rows; // training rows for the scans
+    private double[] norms; // squared norms of the rows for the Euclidean distance
+    private PackedRows packed; // the rows as bits for the Hamming distance over discrete attributes
 
     public KNNModel(Dataset dataset, int k, Distance df) {
         this.dataset = dataset;
         this.k = k;
         this.df = df;
+        this.classes = dataset.classIndices();
+        this.uniqueClasses = dataset.uniqueClasses();
+
+        if(df instanceof Hamming && dataset.attributeCount() > 0) {
+            boolean discrete = true;
+            for(int j = 0; j < dataset.attributeCount(); j++) {
+                discrete &= dataset.attributeType(j) == DISCRETE;
+            }
+            if(discrete) {
+                this.packed = new PackedRows(dataset.getX());
+            }
+        }
+    }
+
+    public KNNModel(Dataset dataset, int k, Distance df, SpatialIndex index) {
+        this(dataset, k, df);
+        this.index = index;
     }
 
     @Override
     public int predict(Vector e) {
-        Map<Double, Integer> nearest = new TreeMap<>();
-        Matrix x = dataset.getX();
-        for(int i = 0; i < x.rowCount(); i++) {
-            Vector r = x.row(i);
-            double distance = df.distance(r, e);
-            nearest.put(distance, i);
-        }
+        return vote(nearest(e));
+    }
 
-        int i = 0;
-        Vector votes = new Vector();
-        for(Map.Entry<Double, Integer> entry : nearest.entrySet()) {
-            if(i >= k) {
-                break;
+    /**
+     * Rows of the k nearest training samples to e and of the ones tied with the k-th, nearest first.
+     */
+    public int[] nearest(Vector e) {
+        int[] nearest;
+        if(index != null) {
+            nearest = index.query(e, k);
+        } else if(packed != null) {
+            Neighbours neighbours = new Neighbours(k);
+            long[] query = new long[packed.words()];
+            packed.encode(e, query, 0);
+            for(int i = 0; i < dataset.sampleCount(); i++) {
+                neighbours.offer(i, packed.distance(i, query, neighbours.worst()));
+            }
+            nearest = neighbours.indices();
+        } else {
+            prepare();
+            Neighbours neighbours = new Neighbours(k);
+            double[] query = e.toArray();
+            for(int i = 0; i < rows.length; i++) {
+                neighbours.offer(i, df.distance(rows[i], query, neighbours.worst()));
             }
+            nearest = neighbours.indices();
+        }
+        return nearest;
+    }
+
+    /**
+     * Without an index, scans the training rows once per block of {@link #QUERY_BLOCK} queries, {@link
+     * #TRAINING_BLOCK} rows at a time, so that the rows stay in cache while every query of the block is compared to
+     * them. The Euclidean distance first estimates ||a||^2 + ||b||^2 - 2a.b from precomputed squared norms to rule
+     * out the rows past the k-th neighbour, and scores the rows it keeps with the distance itself: the expansion rounds
+     * differently, so ranking on it would break exact ties and disagree with {@link #predict(Vector)}. The Hamming
+     * distance over discrete attributes is counted on the packed bits. Other distances stop early past the k-th
+     * neighbour of the query.
+     */
+    @Override
+    protected void predict(Matrix x, int from, int to, int[] predictions, int offset) {
+        if(index != null) {
+            super.predict(x, from, to, predictions, offset);
+            return;
+        }
+        if(packed == null) {
+            prepare();
+        }
 
-            int index = entry.getValue();
-            int classValue = dataset.classValue(index);
+        int n = dataset.sampleCount();
+        int d = x.colCount();
+        boolean euclidean = df instanceof Euclidean;
+        double[][] queries = new double[QUERY_BLOCK][];
+        double[] queryNorms = new double[QUERY_BLOCK];
+        long[][] codes = new long[QUERY_BLOCK][];
+        Neighbours[] neighbours = new Neighbours[QUERY_BLOCK];
 
-            double distance = entry.getKey();
-            LOG.debug("{}: index: {}; distance: {}, vote: {}", new Object[]{i, index, distance, classValue});
+        for(int start = from; start < to; start += QUERY_BLOCK) {
+            int count = Math.min(QUERY_BLOCK, to - start);
+            for(int q = 0; q < count; q++) {
+                Vector query = x.row(start + q);
+                queries[q] = query.toArray();
+                queryNorms[q] = dot(queries[q], queries[q], d);
+                if(packed != null) {
+                    codes[q] = new long[packed.words()];
+                    packed.encode(query, codes[q], 0);
+                }
+                neighbours[q] = new Neighbours(k);
+            }
 
-            votes.add(classValue);
+            for(int block = 0; block < n; block += TRAINING_BLOCK) {
+                int end = Math.min(block + TRAINING_BLOCK, n);
+                for(int q = 0; q < count; q++) {
+                    double[] query = queries[q];
+                    for(int i = block; i < end; i++) {
+                        double worst = neighbours[q].worst();
+                        double distance;
+                        if(packed != null) {
+                            distance = packed.distance(i, codes[q], worst);
+                        } else {
+                            if(euclidean) {
+                                double slack = (d + 2) * EXPANSION_ERROR * (queryNorms[q] + norms[i]);
+                                if(queryNorms[q] + norms[i] - 2 * dot(query, rows[i], d) > worst * worst + slack) {
+                                    continue;
+                                }
+                            }
+                            distance = df.distance(rows[i], query, worst);
+                        }
+                        neighbours[q].offer(i, distance);
+                    }
+                }
+            }
 
-            i++;
+            for(int q = 0; q < count; q++) {
+                predictions[offset + start - from + q] = vote(neighbours[q].indices());
+            }
         }
+    }
 
-        int prediction = votes.valueOfMaxOccurrence();
+    /**
+     * Every neighbour tied with the k-th votes, a tie between classes goes to the lowest class.
+     */
+    int vote(int[] nearest) {
+        int[] votes = new int[uniqueClasses.length()];
+        for(int i : nearest) {
+            votes[classes[i]]++;
+        }
+        int best = 0;
+        for(int c = 1; c < votes.length; c++) {
+            if(votes[c] > votes[best]) {
+                best = c;
+            }
+        }
+
+        int prediction = uniqueClasses.intAt(best);
         LOG.debug("predicting: {}", prediction);
         return prediction;
     }
 
-    @Override
-    public Vector predict(Matrix x) {
-        Vector predictions = new Vector(new int[x.rowCount()]);
-        for(int i = 0; i < x.rowCount(); i++) {
-            predictions.set(i, predict(x.row(i)));
+    double[][] rows() {
+        prepare();
+        return rows;
+    }
+
+    int getK() {
+        return k;
+    }
+
+    Distance getDistance() {
+        return df;
+    }
+
+    /**
+     * Copies the training rows on the first scan, rows is published last so that it guards norms.
+     */
+    private void prepare() {
+        if(rows != null) {
+            return;
         }
-        return predictions;
+        synchronized(this) {
+            if(rows != null) {
+                return;
+            }
+            Matrix x = dataset.getX();
+            double[][] rows = new double[x.rowCount()][];
+            double[] norms = new double[rows.length];
+            for(int i = 0; i < rows.length; i++) {
+                rows[i] = x.row(i).toArray();
+                norms[i] = dot(rows[i], rows[i], rows[i].length);
+            }
+            this.norms = norms;
+            this.rows = rows;
+        }
+    }
+
+    private static double dot(double[] a, double[] b, int d) {
+        double sum = 0;
+        for(int j = 0; j < d; j++) {
+            sum += a[j] * b[j];
+        }
+        return sum;
+    }
+
+    /**
+     * Index searched for the neighbours, or null for a scan of every training row.
+     */
+    public SpatialIndex getIndex() {
+        return index;
     }
 }
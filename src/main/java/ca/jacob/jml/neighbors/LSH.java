@@ -0,0 +1,55 @@
+package ca.jacob.jml.neighbors;
+
+import ca.jacob.jml.Algorithm;
+import ca.jacob.jml.Dataset;
+import ca.jacob.jml.Model;
+import ca.jacob.jml.math.distance.Distance;
+
+import java.util.Random;
+
+/**
+ * Approximate k-nearest neighbours by locality-sensitive hashing, see {@link LSHModel}. More tables find more of the
+ * true neighbours and wider hashes make smaller buckets, so both trade recall for speed.
+ */
+public class LSH implements Algorithm {
+    private static final String NAME = "LSH K-Nearest Neighbour";
+
+    private int k;
+    private Distance df;
+    private int tables;
+    private int bits;
+    private Long seed;
+
+    /**
+     * @param tables number of hash tables
+     * @param bits width of every hash, between 1 and 64
+     */
+    public LSH(int k, Distance df, int tables, int bits) {
+        this(k, df, tables, bits, null);
+    }
+
+    public LSH(int k, Distance df, int tables, int bits, Long seed) {
+        if(tables < 1 || bits < 1 || bits > 64) {
+            throw new KNNException("there must be at least one table and hashes must have 1 to 64 bits");
+        }
+        this.k = k;
+        this.df = df;
+        this.tables = tables;
+        this.bits = bits;
+        this.seed = seed;
+    }
+
+    @Override
+    public Model fit(Dataset d) {
+        if(k > d.sampleCount()) {
+            throw new KNNException("k must be smaller or equal to data set sample count");
+        }
+        Random random = seed == null ? new Random() : new Random(seed);
+        return new LSHModel(d, k, df, tables, bits, random);
+    }
+
+    @Override
+    public String toString() {
+        return NAME + "(k:"+k+", tables:"+tables+", bits:"+bits+")";
+    }
+}
@@ -0,0 +1,227 @@
+package ca.jacob.jml.neighbors;
+
+import ca.jacob.jml.Dataset;
+import ca.jacob.jml.math.Matrix;
+import ca.jacob.jml.math.Vector;
+import ca.jacob.jml.math.distance.Distance;
+import ca.jacob.jml.math.distance.Hamming;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hashes every training row into a bucket of each table, and only compares a query exactly to the rows sharing one of
+ * its buckets. For the Hamming distance a hash samples bits attributes, so rows differing on few attributes often
+ * agree on all of them. For other distances every bit of a hash is the side of a random hyperplane through the mean
+ * of the rows, so rows at a small angle around the mean usually agree.
+ *
+ * When the buckets hold fewer than k rows the query falls back to an exact scan.
+ */
+public class LSHModel extends KNNModel {
+    private final int bits;
+    private final boolean sampling;
+    private final int[][] attributes; // sampled attributes of every table, for the Hamming distance
+    private final double[][][] planes; // hyperplane normals of every table, for other distances
+    private final double[] mean;
+    private final List<Map<Long, int[]>> buckets;
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong candidates = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    LSHModel(Dataset dataset, int k, Distance df, int tables, int bits, Random random) {
+        super(dataset, k, df);
+        double[][] rows = rows();
+        int d = dataset.attributeCount();
+        this.bits = bits;
+        this.sampling = df instanceof Hamming;
+
+        this.attributes = new int[tables][];
+        this.planes = new double[tables][][];
+        this.mean = new double[d];
+        for(double[] row : rows) {
+            for(int j = 0; j < d; j++) {
+                mean[j] += row[j] / rows.length;
+            }
+        }
+        for(int t = 0; t < tables; t++) {
+            if(sampling) {
+                attributes[t] = new int[bits];
+                for(int b = 0; b < bits; b++) {
+                    attributes[t][b] = random.nextInt(d);
+                }
+            } else {
+                planes[t] = new double[bits][d];
+                for(int b = 0; b < bits; b++) {
+                    for(int j = 0; j < d; j++) {
+                        planes[t][b][j] = random.nextGaussian();
+                    }
+                }
+            }
+        }
+
+        this.buckets = new ArrayList<>(tables);
+        for(int t = 0; t < tables; t++) {
+            Map<Long, int[]> counts = new HashMap<>();
+            long[] keys = new long[rows.length];
+            for(int i = 0; i < rows.length; i++) {
+                keys[i] = hash(t, rows[i]);
+                int[] count = counts.get(keys[i]);
+                if(count == null) {
+                    count = new int[1];
+                    counts.put(keys[i], count);
+                }
+                count[0]++;
+            }
+
+            Map<Long, int[]> bucket = new HashMap<>();
+            for(Map.Entry<Long, int[]> entry : counts.entrySet()) {
+                bucket.put(entry.getKey(), new int[entry.getValue()[0]]);
+                entry.getValue()[0] = 0;
+            }
+            for(int i = 0; i < rows.length; i++) {
+                int[] count = counts.get(keys[i]);
+                bucket.get(keys[i])[count[0]++] = i;
+            }
+            buckets.add(bucket);
+        }
+    }
+
+    @Override
+    public int predict(Vector e) {
+        return vote(approximate(e));
+    }
+
+    /**
+     * Predicts row by row, the blocked exact scan of {@link KNNModel} would defeat the hashing.
+     */
+    @Override
+    protected void predict(Matrix x, int from, int to, int[] predictions, int offset) {
+        for(int i = from; i < to; i++) {
+            predictions[offset + i - from] = predict(x.row(i));
+        }
+    }
+
+    /**
+     * Rows of the approximate k nearest training samples to e, and of the candidates tied with the k-th, nearest
+     * first.
+     */
+    public int[] approximate(Vector e) {
+        return approximate(e, true);
+    }
+
+    /**
+     * Same as {@link #approximate(Vector)}, only adding to the statistics when counted.
+     */
+    private int[] approximate(Vector e, boolean counted) {
+        double[][] rows = rows();
+        double[] query = e.toArray();
+
+        BitSet seen = new BitSet(rows.length);
+        int count = 0;
+        for(int t = 0; t < buckets.size(); t++) {
+            int[] bucket = buckets.get(t).get(hash(t, query));
+            if(bucket == null) {
+                continue;
+            }
+            for(int i : bucket) {
+                if(!seen.get(i)) {
+                    seen.set(i);
+                    count++;
+                }
+            }
+        }
+
+        if(counted) {
+            queries.incrementAndGet();
+            candidates.addAndGet(count < getK() ? rows.length : count);
+            if(count < getK()) {
+                fallbacks.incrementAndGet();
+            }
+        }
+        if(count < getK()) {
+            return nearest(e);
+        }
+
+        Distance df = getDistance();
+        Neighbours neighbours = new Neighbours(getK());
+        for(int i = seen.nextSetBit(0); i >= 0; i = seen.nextSetBit(i + 1)) {
+            neighbours.offer(i, df.distance(rows[i], query, neighbours.worst()));
+        }
+        return neighbours.indices();
+    }
+
+    /**
+     * Mean share of the k exact nearest neighbours of the rows of x, ties included, that the hashing finds. The
+     * queries it makes are left out of the statistics.
+     */
+    public double recall(Matrix x) {
+        long found = 0;
+        long total = 0;
+        for(int i = 0; i < x.rowCount(); i++) {
+            Vector e = x.row(i);
+            int[] exact = nearest(e);
+            int[] approximate = approximate(e, false);
+            Arrays.sort(approximate);
+            for(int row : exact) {
+                if(Arrays.binarySearch(approximate, row) >= 0) {
+                    found++;
+                }
+            }
+            total += exact.length;
+        }
+        return (double) found / total;
+    }
+
+    private long hash(int t, double[] row) {
+        long key = 0;
+        if(sampling) {
+            for(int b = 0; b < bits; b++) {
+                key = key * 1000003 + Double.doubleToLongBits(row[attributes[t][b]]);
+            }
+            return key;
+        }
+
+        for(int b = 0; b < bits; b++) {
+            double[] plane = planes[t][b];
+            double dot = 0;
+            for(int j = 0; j < row.length; j++) {
+                dot += plane[j] * (row[j] - mean[j]);
+            }
+            if(dot >= 0) {
+                key |= 1L << b;
+            }
+        }
+        return key;
+    }
+
+    public long getQueryCount() {
+        return queries.get();
+    }
+
+    /**
+     * Mean number of training rows compared exactly per query, the rows of a fallback scan included.
+     */
+    public double getMeanCandidates() {
+        return queries.get() == 0 ? 0 : (double) candidates.get() / queries.get();
+    }
+
+    /**
+     * Queries whose buckets held fewer than k rows and were answered by an exact scan.
+     */
+    public long getFallbackCount() {
+        return fallbacks.get();
+    }
+
+    public void resetStats() {
+        queries.set(0);
+        candidates.set(0);
+        fallbacks.set(0);
+    }
+}
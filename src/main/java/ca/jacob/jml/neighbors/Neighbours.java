@@ -0,0 +1,136 @@
+package ca.jacob.jml.neighbors;
+
+import java.util.Arrays;
+
+/**
+ * The k nearest rows offered so far, in a bounded max-heap of distances so that offering n rows costs O(n log k).
+ * Rows at exactly the distance of the k-th neighbour are kept aside as ties instead of being dropped, so there can
+ * be more than k neighbours.
+ */
+class Neighbours {
+    private final double[] distances;
+    private final int[] indices;
+    private int size;
+
+    private int[] ties; // rows at the distance of the heap's root
+    private int tieCount;
+
+    Neighbours(int k) {
+        this.distances = new double[k];
+        this.indices = new int[k];
+        this.ties = new int[4];
+    }
+
+    void offer(int index, double distance) {
+        if(size < indices.length) {
+            distances[size] = distance;
+            indices[size] = index;
+            up(size++);
+            return;
+        }
+
+        double worst = distances[0];
+        if(distance > worst) {
+            return;
+        } else if(distance == worst) {
+            tie(index);
+            return;
+        }
+
+        int replaced = indices[0];
+        distances[0] = distance;
+        indices[0] = index;
+        down(0);
+
+        if(distances[0] == worst) {
+            tie(replaced);
+        } else {
+            tieCount = 0;
+        }
+    }
+
+    /**
+     * Distance a row must not exceed to be kept, infinite until there are k rows.
+     */
+    double worst() {
+        return size < indices.length ? Double.POSITIVE_INFINITY : distances[0];
+    }
+
+    /**
+     * Rows of the neighbours sorted by distance, then by row.
+     */
+    int[] indices() {
+        int count = size + tieCount;
+        double[] keys = new double[count];
+        int[] rows = new int[count];
+        for(int p = 0; p < size; p++) {
+            rows[p] = indices[p];
+            keys[p] = distances[p];
+        }
+        for(int p = 0; p < tieCount; p++) {
+            rows[size + p] = ties[p];
+            keys[size + p] = distances[0];
+        }
+
+        // Insertion sort, k is small
+        for(int p = 1; p < count; p++) {
+            int row = rows[p];
+            double key = keys[p];
+            int q = p;
+            while(q > 0 && (keys[q-1] > key || (keys[q-1] == key && rows[q-1] > row))) {
+                rows[q] = rows[q-1];
+                keys[q] = keys[q-1];
+                q--;
+            }
+            rows[q] = row;
+            keys[q] = key;
+        }
+        return rows;
+    }
+
+    private void tie(int index) {
+        if(tieCount == ties.length) {
+            ties = Arrays.copyOf(ties, ties.length * 2);
+        }
+        ties[tieCount++] = index;
+    }
+
+    private void up(int p) {
+        while(p > 0) {
+            int parent = (p - 1) >>> 1;
+            if(distances[parent] >= distances[p]) {
+                return;
+            }
+            swap(p, parent);
+            p = parent;
+        }
+    }
+
+    private void down(int p) {
+        while(true) {
+            int largest = p;
+            int left = 2 * p + 1;
+            int right = left + 1;
+            if(left < size && distances[left] > distances[largest]) {
+                largest = left;
+            }
+            if(right < size && distances[right] > distances[largest]) {
+                largest = right;
+            }
+            if(largest == p) {
+                return;
+            }
+            swap(p, largest);
+            p = largest;
+        }
+    }
+
+    private void swap(int p, int q) {
+        double distance = distances[p];
+        distances[p] = distances[q];
+        distances[q] = distance;
+        int index = indices[p];
+        indices[p] = indices[q];
+        indices[q] = index;
+    }
+}
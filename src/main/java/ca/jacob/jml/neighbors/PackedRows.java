@@ -0,0 +1,82 @@
+package ca.jacob.jml.neighbors;
+
+import ca.jacob.jml.math.Matrix;
+import ca.jacob.jml.math.Vector;
+
+import java.util.Arrays;
+
+/**
+ * Discrete training rows one-hot encoded into bits packed in longs. Every attribute gets one bit per training value
+ * plus one for values never seen in training, so two rows differing on an attribute always differ on exactly two of
+ * its bits and the Hamming distance is half the bit count of their XOR.
+ */
+class PackedRows {
+    private final int[][] values; // sorted distinct training values of every attribute
+    private final int[] offsets; // first bit of every attribute, the last of its bits is for unseen values
+    private final int words;
+    private final long[] rows;
+
+    PackedRows(Matrix x) {
+        int n = x.rowCount();
+        int d = x.colCount();
+        this.values = new int[d][];
+        this.offsets = new int[d];
+
+        int bits = 0;
+        for(int j = 0; j < d; j++) {
+            int[] column = new int[n];
+            for(int i = 0; i < n; i++) {
+                column[i] = (int) x.at(i, j);
+            }
+            Arrays.sort(column);
+
+            int distinct = 0;
+            for(int i = 0; i < n; i++) {
+                if(i == 0 || column[i] != column[i-1]) {
+                    column[distinct++] = column[i];
+                }
+            }
+            values[j] = Arrays.copyOf(column, distinct);
+            offsets[j] = bits;
+            bits += distinct + 1;
+        }
+
+        this.words = (bits + 63) >>> 6;
+        this.rows = new long[n * words];
+        for(int i = 0; i < n; i++) {
+            encode(x.row(i), rows, i * words);
+        }
+    }
+
+    int words() {
+        return words;
+    }
+
+    /**
+     * Writes the bits of e to dest from offset, dest must be cleared.
+     */
+    void encode(Vector e, long[] dest, int offset) {
+        for(int j = 0; j < values.length; j++) {
+            int k = Arrays.binarySearch(values[j], (int) e.at(j));
+            int bit = offsets[j] + (k >= 0 ? k : values[j].length);
+            dest[offset + (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Hamming distance between training row i and the encoded query, or some distance above bound once the words
+     * compared so far already exceed it.
+     */
+    double distance(int i, long[] query, double bound) {
+        long limit = bound >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE : (long) (2 * bound);
+        int offset = i * words;
+        long count = 0;
+        for(int w = 0; w < words; w++) {
+            count += Long.bitCount(rows[offset + w] ^ query[w]);
+            if(count > limit) {
+                break;
+            }
+        }
+        return count / 2.;
+    }
+}
@@ -0,0 +1,204 @@
+package ca.jacob.jml.neighbors;
+
+import ca.jacob.jml.math.Matrix;
+import ca.jacob.jml.math.Vector;
+import ca.jacob.jml.math.distance.Distance;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ca.jacob.jml.math.Util.argsort;
+
+/**
+ * Binary space partitioning of the training rows for k-nearest neighbour queries. Every node splits its rows at the
+ * median of the attribute with the widest spread, down to leaves of at most {@link #LEAF_SIZE} rows. A query visits
+ * the closer child first and skips every node whose lower bound on the distance is worse than the current k-th
+ * neighbour, nodes at exactly that distance may still hold tied neighbours.
+ *
+ * Subclasses decide how a node bounds the distance to its rows. The bound must never exceed the distance to any row
+ * of the node, otherwise queries miss neighbours.
+ */
+public abstract class SpatialIndex {
+    public static final int LEAF_SIZE = 16;
+
+    protected final double[][] values; // the training rows
+    protected final Distance df;
+    protected final int dimension;
+
+    protected final int[] order; // row ids, the rows of node n are order[from[n]] to order[to[n]-1]
+    protected final int[] from;
+    protected final int[] to;
+    private final int[] left; // -1 for a leaf
+    private final int[] right;
+    private int nodeCount;
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong visited = new AtomicLong();
+    private final AtomicLong pruned = new AtomicLong();
+
+    protected SpatialIndex(Matrix x, Distance df) {
+        int n = x.rowCount();
+        this.df = df;
+        this.dimension = x.colCount();
+        this.values = new double[n][];
+        for(int i = 0; i < n; i++) {
+            values[i] = x.row(i).toArray();
+        }
+
+        this.order = new int[n];
+        for(int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+
+        int capacity = count(n);
+        this.from = new int[capacity];
+        this.to = new int[capacity];
+        this.left = new int[capacity];
+        this.right = new int[capacity];
+    }
+
+    /**
+     * Computes whatever the node needs for {@link #bound(int, double[], double, double[])}, once its rows are known.
+     */
+    protected abstract void summarize(int node);
+
+    /**
+     * Lower bound on the distance from the query to any row of the node. Like {@link Distance#distance(double[],
+     * double[], double)}, any value above cutoff will do once the bound exceeds it. scratch holds dimension doubles
+     * the bound may use freely.
+     */
+    protected abstract double bound(int node, double[] e, double cutoff, double[] scratch);
+
+    /**
+     * Number of nodes the tree will have, subclasses size their per-node storage with it before calling build().
+     */
+    protected int capacity() {
+        return from.length;
+    }
+
+    protected void build() {
+        nodeCount = 0;
+        build(0, order.length);
+    }
+
+    private int build(int start, int end) {
+        int node = nodeCount++;
+        from[node] = start;
+        to[node] = end;
+        left[node] = -1;
+        right[node] = -1;
+        summarize(node);
+
+        if(end - start <= LEAF_SIZE) {
+            return node;
+        }
+
+        int widest = 0;
+        double maxSpread = -1;
+        for(int j = 0; j < dimension; j++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for(int p = start; p < end; p++) {
+                double value = values[order[p]][j];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if(max - min > maxSpread) {
+                maxSpread = max - min;
+                widest = j;
+            }
+        }
+
+        double[] keys = new double[end - start];
+        for(int p = start; p < end; p++) {
+            keys[p - start] = values[order[p]][widest];
+        }
+        int[] sorted = argsort(keys);
+        int[] rows = new int[end - start];
+        for(int p = 0; p < rows.length; p++) {
+            rows[p] = order[start + sorted[p]];
+        }
+        System.arraycopy(rows, 0, order, start, rows.length);
+
+        int middle = (start + end) >>> 1;
+        left[node] = build(start, middle);
+        right[node] = build(middle, end);
+        return node;
+    }
+
+    /**
+     * Row ids of the k nearest training rows to e and of the rows tied with the k-th, nearest first.
+     */
+    public int[] query(Vector e, int k) {
+        double[] query = e.toArray();
+        double[] scratch = new double[dimension];
+        Neighbours neighbours = new Neighbours(k);
+        long[] stats = new long[2];
+        search(0, query, bound(0, query, Double.POSITIVE_INFINITY, scratch), neighbours, scratch, stats);
+
+        queries.incrementAndGet();
+        visited.addAndGet(stats[0]);
+        pruned.addAndGet(stats[1]);
+        return neighbours.indices();
+    }
+
+    private void search(int node, double[] e, double bound, Neighbours neighbours, double[] scratch, long[] stats) {
+        if(bound > neighbours.worst()) {
+            stats[1]++;
+            return;
+        }
+        stats[0]++;
+
+        if(left[node] < 0) {
+            for(int p = from[node]; p < to[node]; p++) {
+                neighbours.offer(order[p], df.distance(values[order[p]], e, neighbours.worst()));
+            }
+            return;
+        }
+
+        double leftBound = bound(left[node], e, neighbours.worst(), scratch);
+        double rightBound = bound(right[node], e, neighbours.worst(), scratch);
+        if(leftBound <= rightBound) {
+            search(left[node], e, leftBound, neighbours, scratch, stats);
+            search(right[node], e, rightBound, neighbours, scratch, stats);
+        } else {
+            search(right[node], e, rightBound, neighbours, scratch, stats);
+            search(left[node], e, leftBound, neighbours, scratch, stats);
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public long getQueryCount() {
+        return queries.get();
+    }
+
+    /**
+     * Nodes whose rows were examined or whose children were bounded, summed over all the queries.
+     */
+    public long getVisitedNodes() {
+        return visited.get();
+    }
+
+    /**
+     * Nodes skipped because of their bound, summed over all the queries. The nodes below them are not counted.
+     */
+    public long getPrunedNodes() {
+        return pruned.get();
+    }
+
+    public void resetStats() {
+        queries.set(0);
+        visited.set(0);
+        pruned.set(0);
+    }
+
+    private static int count(int n) {
+        if(n <= LEAF_SIZE) {
+            return 1;
+        }
+        int half = n >>> 1;
+        return 1 + count(half) + count(n - half);
+    }
+}
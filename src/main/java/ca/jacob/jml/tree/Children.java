@@ -3,9 +3,12 @@ package ca.jacob.jml.tree;
 import ca.jacob.jml.Dataset;
 import ca.jacob.jml.math.Vector;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 public abstract class Children implements Iterable<Node> {
     Node parent;
@@ -19,4 +22,72 @@ public abstract class Children implements Iterable<Node> {
     abstract public int predict(Vector e);
     abstract public int maxDepth();
     abstract public Node get(int i);
+
+    /**
+     * Grows the subtree of every node from its subset. With a pool on the parent, the subsets with at least its
+     * subtree threshold of samples are forked and the smaller ones grow inline on the current worker.
+     */
+    void split(List<Node> nodes, List<Dataset> subsets) {
+        ForkJoinPool pool = parent.getPool();
+        if(pool == null) {
+            for(int i = 0; i < nodes.size(); i++) {
+                nodes.get(i).split(subsets.get(i));
+            }
+            return;
+        }
+
+        Subtrees subtrees = new Subtrees(nodes, subsets, parent.getSubtreeThreshold());
+        if(ForkJoinTask.getPool() == pool) {
+            subtrees.invoke();
+        } else {
+            pool.invoke(subtrees);
+        }
+    }
+
+    private static class Subtrees extends RecursiveAction {
+        private final List<Node> nodes;
+        private final List<Dataset> subsets;
+        private final int threshold;
+
+        private Subtrees(List<Node> nodes, List<Dataset> subsets, int threshold) {
+            this.nodes = nodes;
+            this.subsets = subsets;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            List<Subtree> forked = new ArrayList<>();
+            for(int i = 0; i < nodes.size(); i++) {
+                if(subsets.get(i).sampleCount() >= threshold) {
+                    Subtree subtree = new Subtree(nodes.get(i), subsets.get(i));
+                    subtree.fork();
+                    forked.add(subtree);
+                }
+            }
+            for(int i = 0; i < nodes.size(); i++) {
+                if(subsets.get(i).sampleCount() < threshold) {
+                    nodes.get(i).split(subsets.get(i));
+                }
+            }
+            for(Subtree subtree : forked) {
+                subtree.join();
+            }
+        }
+    }
+
+    private static class Subtree extends RecursiveAction {
+        private final Node node;
+        private final Dataset dataset;
+
+        private Subtree(Node node, Dataset dataset) {
+            this.node = node;
+            this.dataset = dataset;
+        }
+
+        @Override
+        protected void compute() {
+            node.split(dataset);
+        }
+    }
 }
@@ -0,0 +1,38 @@
+package ca.jacob.jml.tree;
+
+import ca.jacob.jml.Model;
+import ca.jacob.jml.math.Matrix;
+import ca.jacob.jml.math.Vector;
+
+import java.util.Collections;
+
+/**
+ * A tree of {@link Node}s flattened into a {@link TreeArena} of its own, so that predicting walks arrays without
+ * copying or shrinking the sample.
+ */
+public class CompiledID3Model extends Model {
+    private final TreeArena arena;
+
+    public CompiledID3Model(Node root) {
+        this.arena = new TreeArena(Collections.singletonList(root));
+    }
+
+    @Override
+    public int predict(Vector e) {
+        return arena.label(arena.leaf(0, e));
+    }
+
+    /**
+     * Reads the attributes straight from the matrix instead of through a view of every row.
+     */
+    @Override
+    protected void predict(Matrix x, int from, int to, int[] predictions, int offset) {
+        for(int i = from; i < to; i++) {
+            predictions[offset + i - from] = arena.label(arena.leaf(0, x, i));
+        }
+    }
+
+    public int nodeCount() {
+        return arena.nodeCount();
+    }
+}
@@ -42,8 +42,7 @@ public class ContinuousChildren extends Children {
             throw new DataException("There must be 2 datasets");
         }
 
-        under.split(subsets.get(0));
-        over.split(subsets.get(1));
+        split(Arrays.asList(under, over), subsets);
     }
 
     @Override
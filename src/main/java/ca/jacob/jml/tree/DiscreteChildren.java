@@ -43,10 +43,11 @@ public class DiscreteChildren extends Children {
             throw new DataException("nodes and subsets sizes must match");
         }
 
-        for (int i = 0; i < nodes.size(); i++) {
-            Node node = nodes.get(i).last();
-            node.split(subsets.get(i));
+        List<Node> children = new ArrayList<>();
+        for (Tuple<Integer, Node> entry : nodes) {
+            children.add(entry.last());
         }
+        split(children, subsets);
     }
 
     @Override
@@ -82,6 +83,10 @@ public class DiscreteChildren extends Children {
         return nodes.get(i).last();
     }
 
+    int value(int i) {
+        return nodes.get(i).first();
+    }
+
     public void put(int value, Node n) {
         if(nodes == null) {
             nodes = new ArrayList<>();
@@ -0,0 +1,282 @@
+package ca.jacob.jml.tree;
+
+import ca.jacob.jml.Algorithm;
+import ca.jacob.jml.Dataset;
+import ca.jacob.jml.Model;
+import ca.jacob.jml.exceptions.AttributeException;
+import ca.jacob.jml.math.Tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ca.jacob.jml.Dataset.CONTINUOUS;
+import static ca.jacob.jml.Dataset.DISCRETE;
+import static ca.jacob.jml.Util.indices;
+import static ca.jacob.jml.math.Util.argsort;
+import static ca.jacob.jml.math.Util.log2;
+
+/**
+ * ID3 that quantizes every continuous attribute once into at most maxBins bins of roughly equal size, in the style of
+ * LightGBM. Each node keeps a class histogram per bin for every continuous attribute and finds its threshold by
+ * sweeping the bins in O(bins * classes) instead of the samples. The histograms of the largest child are the parent's
+ * minus its siblings', so only the smaller children are scanned.
+ *
+ * Thresholds fall halfway between the values of neighbouring bins. An attribute with at most maxBins distinct values
+ * gets one bin per value and is split like {@link ID3} would split it.
+ */
+public class HistogramID3 implements Algorithm {
+    public static final String NAME = "Histogram ID3";
+    public static final int DEFAULT_MAX_BINS = 255;
+
+    private int maxLevel;
+    private int minNumberOfSamples;
+    private int maxBins;
+
+    public HistogramID3(int maxLevel, int minNumberOfSamples, int maxBins) {
+        if(maxBins < 2 || maxBins > 1 << 16) {
+            throw new AttributeException("the number of bins must be between 2 and 65536");
+        }
+        this.maxLevel = maxLevel;
+        this.minNumberOfSamples = minNumberOfSamples;
+        this.maxBins = maxBins;
+    }
+
+    public HistogramID3(int maxLevel, int minNumberOfSamples) {
+        this(maxLevel, minNumberOfSamples, DEFAULT_MAX_BINS);
+    }
+
+    public HistogramID3(int maxLevel) {
+        this(maxLevel, ID3.MIN_SAMPLES_NONE);
+    }
+
+    public HistogramID3() {
+        this(ID3.MAX_LEVEL_NONE, ID3.MIN_SAMPLES_NONE);
+    }
+
+    public void setMaxLevel(int maxLevel) {
+        this.maxLevel = maxLevel;
+    }
+
+    @Override
+    public Model fit(Dataset dataset) {
+        int d = dataset.attributeCount();
+
+        Bins[] bins = new Bins[d];
+        for(int j = 0; j < d; j++) {
+            if(dataset.attributeType(j) == CONTINUOUS) {
+                bins[j] = new Bins(dataset.attribute(j).toArray(), maxBins);
+            } else if(dataset.attributeType(j) != DISCRETE) {
+                throw new AttributeException("unknown data type");
+            }
+        }
+
+        int[] classes = dataset.classIndices();
+        int classCount = dataset.uniqueClasses().length();
+        int[] rows = indices(dataset.sampleCount());
+
+        int[][] histograms = new int[d][];
+        for(int j = 0; j < d; j++) {
+            if(bins[j] != null) {
+                histograms[j] = bins[j].histogram(rows, classes, classCount);
+            }
+        }
+
+        Builder builder = new Builder(dataset, bins, classes, classCount);
+        Node root = new Node(maxLevel, minNumberOfSamples);
+        builder.grow(root, rows, indices(d), histograms);
+        return new ID3Model(root);
+    }
+
+    @Override
+    public String toString() {
+        return NAME+"(maxLevel:"+maxLevel+", minNumOfSamples:"+minNumberOfSamples+", maxBins:"+maxBins+")";
+    }
+
+    /**
+     * Bin codes of one continuous attribute, stored in a byte per row when there are at most 256 bins.
+     */
+    private static class Bins {
+        private final int count;
+        private final double[] thresholds; // thresholds[b] separates bin b from bin b+1
+        private final byte[] bytes;
+        private final short[] shorts;
+
+        private Bins(double[] values, int maxBins) {
+            int n = values.length;
+            int[] order = argsort(values);
+
+            int distinct = 0;
+            for(int p = 0; p < n; p++) {
+                if(p == 0 || values[order[p]] != values[order[p-1]]) {
+                    distinct++;
+                }
+            }
+
+            int[] codes = new int[n];
+            double[] thresholds = new double[Math.min(distinct, maxBins)];
+            int bin = 0;
+            for(int p = 0; p < n; p++) {
+                if(p > 0 && values[order[p]] != values[order[p-1]]) {
+                    // a new bin starts at every distinct value, or once the current bin has its share of the rows
+                    if(distinct <= maxBins || (long) p * maxBins >= (long) (bin+1) * n) {
+                        thresholds[bin] = (values[order[p-1]] + values[order[p]]) / 2;
+                        bin++;
+                    }
+                }
+                codes[order[p]] = bin;
+            }
+            this.count = bin + 1;
+            this.thresholds = thresholds;
+
+            if(count <= 1 << 8) {
+                this.bytes = new byte[n];
+                this.shorts = null;
+                for(int i = 0; i < n; i++) {
+                    bytes[i] = (byte) codes[i];
+                }
+            } else {
+                this.bytes = null;
+                this.shorts = new short[n];
+                for(int i = 0; i < n; i++) {
+                    shorts[i] = (short) codes[i];
+                }
+            }
+        }
+
+        private int code(int row) {
+            return bytes != null ? bytes[row] & 0xFF : shorts[row] & 0xFFFF;
+        }
+
+        /**
+         * Number of rows of every class in every bin, at bin * classCount + class.
+         */
+        private int[] histogram(int[] rows, int[] classes, int classCount) {
+            int[] histogram = new int[count * classCount];
+            for(int row : rows) {
+                histogram[code(row) * classCount + classes[row]]++;
+            }
+            return histogram;
+        }
+    }
+
+    private static class Builder extends TreeBuilder<int[][]> {
+        private final Bins[] bins;
+        private final int[] classes;
+        private final int classCount;
+        private final double[] cLogC;
+
+        private final int[] left;
+        private final int[] total;
+
+        private Builder(Dataset root, Bins[] bins, int[] classes, int classCount) {
+            super(root);
+            this.bins = bins;
+            this.classes = classes;
+            this.classCount = classCount;
+            this.left = new int[classCount];
+            this.total = new int[classCount];
+
+            this.cLogC = new double[classes.length + 1];
+            for(int c = 1; c <= classes.length; c++) {
+                cLogC[c] = c * log2(c);
+            }
+        }
+
+        /**
+         * Sweeps the bins from left to right, the weighted entropy is the one of {@link ca.jacob.jml.ThresholdFinder}.
+         */
+        @Override
+        Tuple<Double, Double> threshold(Dataset dataset, int[][] histograms, int j, int column) {
+            int[] histogram = histograms[j];
+            Bins bins = this.bins[column];
+            int n = dataset.sampleCount();
+
+            for(int k = 0; k < classCount; k++) {
+                left[k] = 0;
+                total[k] = 0;
+            }
+            for(int b = 0; b < bins.count; b++) {
+                for(int k = 0; k < classCount; k++) {
+                    total[k] += histogram[b * classCount + k];
+                }
+            }
+
+            double bestPivot = 0;
+            double minimumEntropy = 0;
+            boolean found = false;
+            int underCount = 0;
+            for(int b = 0; b < bins.count-1; b++) {
+                int binCount = 0;
+                for(int k = 0; k < classCount; k++) {
+                    int c = histogram[b * classCount + k];
+                    left[k] += c;
+                    binCount += c;
+                }
+                if(binCount == 0) {
+                    continue;
+                }
+                underCount += binCount;
+                int overCount = n - underCount;
+                if(overCount == 0) {
+                    break;
+                }
+
+                double leftSum = 0;
+                double rightSum = 0;
+                for(int k = 0; k < classCount; k++) {
+                    leftSum += cLogC[left[k]];
+                    rightSum += cLogC[total[k] - left[k]];
+                }
+
+                double entropy = (cLogC[underCount] - leftSum + cLogC[overCount] - rightSum) / (n * 2);
+                if(!found || entropy < minimumEntropy) {
+                    found = true;
+                    bestPivot = bins.thresholds[b];
+                    minimumEntropy = entropy;
+                }
+            }
+
+            if(!found) {
+                return null;
+            }
+            return new Tuple<>(bestPivot, minimumEntropy);
+        }
+
+        @Override
+        List<int[][]> partition(int[][] histograms, int[] rows, int[][] childRows, int bestAttribute, int[] childColumns) {
+            int largest = 0;
+            for(int c = 1; c < childRows.length; c++) {
+                if(childRows[c].length > childRows[largest].length) {
+                    largest = c;
+                }
+            }
+
+            List<int[][]> childHistograms = new ArrayList<>();
+            for(int c = 0; c < childRows.length; c++) {
+                childHistograms.add(new int[childColumns.length][]);
+            }
+
+            for(int j = 0, k = 0; j < histograms.length; j++) {
+                if(j == bestAttribute) {
+                    continue;
+                }
+                if(histograms[j] != null) {
+                    int[] remaining = histograms[j].clone();
+                    for(int c = 0; c < childRows.length; c++) {
+                        if(c == largest) {
+                            continue;
+                        }
+                        int[] histogram = bins[childColumns[k]].histogram(childRows[c], classes, classCount);
+                        for(int b = 0; b < histogram.length; b++) {
+                            remaining[b] -= histogram[b];
+                        }
+                        childHistograms.get(c)[k] = histogram;
+                    }
+                    childHistograms.get(largest)[k] = remaining;
+                }
+                k++;
+            }
+            return childHistograms;
+        }
+    }
+}
@@ -2,15 +2,31 @@ package ca.jacob.jml.tree;
 
 import ca.jacob.jml.Dataset;
 import ca.jacob.jml.Model;
-import ca.jacob.jml.Algorithm;
+import ca.jacob.jml.RandomizedAlgorithm;
+import ca.jacob.jml.WeightedAlgorithm;
+import ca.jacob.jml.exceptions.AttributeException;
 
-public class ID3 implements Algorithm {
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+public class ID3 implements RandomizedAlgorithm, WeightedAlgorithm {
     public static final int MAX_LEVEL_NONE = Integer.MAX_VALUE;
     public static final int MIN_SAMPLES_NONE = Integer.MIN_VALUE;
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1000;
+    public static final int DEFAULT_SUBTREE_THRESHOLD = 500;
+    public static final int ALL_FEATURES = 0;
+    public static final int SQRT_FEATURES = 1;
+    public static final int LOG2_FEATURES = 2;
+    public static final int FRACTION_OF_FEATURES = 3;
     public static final String NAME = "ID3";
 
     private int maxLevel;
     private int minNumberOfSamples;
+    private ForkJoinPool pool;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private int subtreeThreshold = DEFAULT_SUBTREE_THRESHOLD;
+    private int maxFeatures = ALL_FEATURES;
+    private double featureFraction = 1;
 
     public ID3(int maxLevel, int minNumberOfSamples) {
         this.maxLevel = maxLevel;
@@ -31,15 +47,85 @@ public class ID3 implements Algorithm {
         this.maxLevel = maxLevel;
     }
 
+    /**
+     * Pool on which the attributes of a node are evaluated and its subtrees grown in parallel, or null, the default, to
+     * build the tree serially.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Nodes with fewer samples evaluate their attributes serially.
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Children with fewer samples grow their subtree on the same worker as their parent.
+     */
+    public void setSubtreeThreshold(int subtreeThreshold) {
+        this.subtreeThreshold = subtreeThreshold;
+    }
+
+    /**
+     * Number of attributes every node evaluates, drawn at random among its attributes: ALL_FEATURES, or the square
+     * root (SQRT_FEATURES) or the base 2 log (LOG2_FEATURES) of their number, at least one. When none of them splits
+     * the node with some gain, the node keeps drawing from the other attributes one at a time before it becomes a
+     * leaf.
+     */
+    public void setMaxFeatures(int maxFeatures) {
+        if(maxFeatures != ALL_FEATURES && maxFeatures != SQRT_FEATURES && maxFeatures != LOG2_FEATURES) {
+            throw new AttributeException("unknown number of features");
+        }
+        this.maxFeatures = maxFeatures;
+        this.featureFraction = 1;
+    }
+
+    /**
+     * Every node evaluates the given fraction of its attributes, at least one, drawn at random.
+     */
+    public void setFeatureFraction(double featureFraction) {
+        if(!(featureFraction > 0 && featureFraction <= 1)) {
+            throw new AttributeException("the fraction of features must be in (0, 1]");
+        }
+        this.maxFeatures = FRACTION_OF_FEATURES;
+        this.featureFraction = featureFraction;
+    }
+
     @Override
     public Model fit(Dataset dataset) {
+        return fit(dataset, (SplittableRandom) null);
+    }
+
+    /**
+     * Grows the tree from the weighted entropy of the samples, and labels every node with its heaviest class.
+     */
+    @Override
+    public Model fit(Dataset dataset, double[] weights) {
+        return fit(dataset.weighted(weights), (SplittableRandom) null);
+    }
+
+    /**
+     * Draws the attributes of every node from random, or from a new generator if it is null. Each node splits its own
+     * generator for its children, so that the tree does not depend on the order in which subtrees grow.
+     */
+    @Override
+    public Model fit(Dataset dataset, SplittableRandom random) {
         Node root = new Node(maxLevel, minNumberOfSamples);
+        root.setPool(pool, parallelThreshold, subtreeThreshold);
+        if(maxFeatures != ALL_FEATURES) {
+            root.setMaxFeatures(maxFeatures, featureFraction, random == null ? new SplittableRandom() : random);
+        }
         root.split(dataset);
         return new ID3Model(root);
     }
 
     @Override
     public String toString() {
-        return NAME+"(maxLevel:"+maxLevel+", minNumOfSamples:"+minNumberOfSamples+")";
+        String features = maxFeatures == SQRT_FEATURES ? ", maxFeatures:sqrt" : maxFeatures == LOG2_FEATURES ? ", maxFeatures:log2"
+                : maxFeatures == FRACTION_OF_FEATURES ? ", featureFraction:"+featureFraction : "";
+        return NAME+"(maxLevel:"+maxLevel+", minNumOfSamples:"+minNumberOfSamples+features+")";
     }
 }
@@ -19,6 +19,13 @@ public class ID3Model extends Model {
         return root;
     }
 
+    /**
+     * Flattened copy of the tree that predicts without allocating, see {@link CompiledID3Model}.
+     */
+    public CompiledID3Model compile() {
+        return new CompiledID3Model(root);
+    }
+
     public int depth() {
         return root.depth();
     }
@@ -9,10 +9,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import static ca.jacob.jml.Dataset.CONTINUOUS;
 import static ca.jacob.jml.Dataset.DISCRETE;
 import static ca.jacob.jml.Util.calculateWeightedEntropy;
+import static ca.jacob.jml.Util.indices;
 
 public class Node {
     private static final Logger LOG = LoggerFactory.getLogger(Node.class);
@@ -25,6 +29,12 @@ public class Node {
     private int level;
     private int maxLevel;
     private int minNumberOfSamples;
+    private ForkJoinPool pool;
+    private int parallelThreshold;
+    private int subtreeThreshold;
+    private int maxFeatures = ID3.ALL_FEATURES;
+    private double featureFraction;
+    private SplittableRandom random;
 
     public Node(int maxLevel, int minNumberOfSamples) {
         this.init(0, maxLevel, minNumberOfSamples);
@@ -32,6 +42,13 @@ public class Node {
 
     public Node(Node parent) {
         this.init(parent.level+1, parent.maxLevel, parent.minNumberOfSamples);
+        this.pool = parent.pool;
+        this.parallelThreshold = parent.parallelThreshold;
+        this.subtreeThreshold = parent.subtreeThreshold;
+        this.maxFeatures = parent.maxFeatures;
+        this.featureFraction = parent.featureFraction;
+        // Children are created in order by their parent before any subtree grows
+        this.random = parent.random == null ? null : parent.random.split();
     }
 
     private void init(int level, int maxLevel, int minNumberOfSamples) {
@@ -46,7 +63,7 @@ public class Node {
 
     public void split(Dataset dataset) {
         LOG.info("split - starting for level {}", level);
-        this.prediction = dataset.classes().valueOfMaxOccurrence();
+        this.prediction = dataset.majorityClass();
 
         if(level == maxLevel || dataset.entropy() == 0 || dataset.sampleCount() <= 1 || dataset.sampleCount() < minNumberOfSamples) {
             LOG.debug("found leaf - level: {}, entropy: {}, numOfSamples: {}", this.level, dataset.entropy(), dataset.sampleCount());
@@ -55,33 +72,48 @@ public class Node {
         }
 
         int numOfAttributes = dataset.attributeCount();
+        int[] attributes = indices(numOfAttributes);
+        double[] entropies = new double[numOfAttributes];
+        Arrays.fill(entropies, Double.NaN);
 
+        // Attributes are drawn in batches until one of them splits the node with some gain: first the number of
+        // features, then one at a time from the rest, so that unsplittable draws do not make a leaf early
         double minEntropy = -1;
         int bestAttribute = -1;
-        for(int j = 0; j < numOfAttributes; j++) {
-            LOG.trace("checking attribute {} of type {}", j, dataset.attributeType(j));
-
-            double entropy;
-            if(dataset.attributeType(j) == DISCRETE) {
-                Tuple<List<Integer>, List<Dataset>> subsets = dataset.splitByDiscreteAttribute(j);
-                entropy = calculateWeightedEntropy(subsets.last());
-
-            } else if(dataset.attributeType(j) == CONTINUOUS) {
-                Tuple<Double, Tuple<Dataset, Dataset>> subsets = dataset.splitByContinuousAttribute(j);
-                if(subsets == null) {
-                    LOG.debug("no possible subsets for attribute {}", j);
-                    continue;
+        int drawn = 0;
+        while(drawn < numOfAttributes) {
+            int count = drawn == 0 ? featureCount(numOfAttributes) : 1;
+            int[] candidates = draw(attributes, drawn, count);
+            drawn += count;
+
+            if(pool != null && candidates.length > 1 && dataset.sampleCount() >= parallelThreshold) {
+                AttributeEvaluation evaluation = new AttributeEvaluation(dataset, candidates, entropies, 0, candidates.length);
+                if(ForkJoinTask.getPool() == pool) {
+                    evaluation.invoke();
+                } else {
+                    pool.invoke(evaluation);
                 }
-                entropy = calculateWeightedEntropy(subsets.last());
             } else {
-                throw new AttributeException("unknown data type");
+                for(int j : candidates) {
+                    entropies[j] = evaluate(dataset, j);
+                }
             }
-            LOG.debug("the total entropy of the children when splitting on attribute {} is {}", j, entropy);
 
-            if(bestAttribute < 0 || entropy < minEntropy) {
-                LOG.trace("attribute {} is now the best attribute", j);
-                minEntropy = entropy;
-                bestAttribute = j;
+            // Picked in order so that ties go to the lowest attribute however the entropies were computed
+            minEntropy = -1;
+            bestAttribute = -1;
+            for(int j = 0; j < numOfAttributes; j++) {
+                if(Double.isNaN(entropies[j])) {
+                    continue;
+                }
+                if(bestAttribute < 0 || entropies[j] < minEntropy) {
+                    LOG.trace("attribute {} is now the best attribute", j);
+                    minEntropy = entropies[j];
+                    bestAttribute = j;
+                }
+            }
+            if(bestAttribute >= 0 && minEntropy < dataset.entropy()) {
+                break;
             }
         }
         LOG.debug("the best attribute is {} for level {}", bestAttribute, level);
@@ -98,9 +130,6 @@ public class Node {
             return;
         }
 
-        attribute = bestAttribute;
-        attributeType = dataset.attributeType(attribute);
-
         List<Dataset> subsets = new ArrayList<>(); // Subsets are given when splitting so that the data does not need to be stored
         if(dataset.attributeType(bestAttribute) == CONTINUOUS) {
             Tuple<Double, Tuple<Dataset, Dataset>> split = dataset.splitByContinuousAttribute(bestAttribute);
@@ -108,25 +137,176 @@ public class Node {
 
             Dataset under = split.last().first();
             Dataset over = split.last().last();
-            under.dropAttribute(attribute);
-            over.dropAttribute(attribute);
+            under.dropAttribute(bestAttribute);
+            over.dropAttribute(bestAttribute);
             subsets.add(under);
             subsets.add(over);
 
-            children = new ContinuousChildren(this, split.first());
+            branch(bestAttribute, split.first());
         } else if(dataset.attributeType(bestAttribute) == DISCRETE) {
             Tuple<List<Integer>, List<Dataset>> split = dataset.splitByDiscreteAttribute(bestAttribute);
             subsets = split.last();
             for(Dataset subset : subsets) {
-                subset.dropAttribute(attribute);
+                subset.dropAttribute(bestAttribute);
             }
-            children = new DiscreteChildren(this, split.first());
+            branch(bestAttribute, split.first());
         }
         LOG.debug("there will be {} children", children.size());
 
         children.split(subsets);
     }
 
+    /**
+     * Number of attributes a node evaluates first, all of them unless a number of features was set.
+     */
+    private int featureCount(int numOfAttributes) {
+        int count = numOfAttributes;
+        if(maxFeatures == ID3.SQRT_FEATURES) {
+            count = (int) Math.sqrt(numOfAttributes);
+        } else if(maxFeatures == ID3.LOG2_FEATURES) {
+            count = (int) (Math.log(numOfAttributes) / Math.log(2));
+        } else if(maxFeatures == ID3.FRACTION_OF_FEATURES) {
+            count = (int) (featureFraction * numOfAttributes);
+        }
+        return Math.min(numOfAttributes, Math.max(1, count));
+    }
+
+    /**
+     * The next count attributes, in increasing order, of a partial Fisher-Yates shuffle of which the first drawn
+     * entries are already in place. Drawing all the attributes at once takes them in order without using random.
+     */
+    private int[] draw(int[] attributes, int drawn, int count) {
+        if(drawn > 0 || count < attributes.length) {
+            for(int k = drawn; k < drawn + count; k++) {
+                int swap = random.nextInt(k, attributes.length);
+                int j = attributes[k];
+                attributes[k] = attributes[swap];
+                attributes[swap] = j;
+            }
+        }
+        int[] candidates = Arrays.copyOfRange(attributes, drawn, drawn + count);
+        Arrays.sort(candidates);
+        return candidates;
+    }
+
+    /**
+     * Weighted entropy of the children when splitting on attribute j, or NaN if the attribute cannot be split.
+     */
+    private static double evaluate(Dataset dataset, int j) {
+        LOG.trace("checking attribute {} of type {}", j, dataset.attributeType(j));
+
+        double entropy;
+        if(dataset.attributeType(j) == DISCRETE) {
+            Tuple<List<Integer>, List<Dataset>> subsets = dataset.splitByDiscreteAttribute(j);
+            entropy = calculateWeightedEntropy(subsets.last());
+
+        } else if(dataset.attributeType(j) == CONTINUOUS) {
+            Tuple<Double, Tuple<Dataset, Dataset>> subsets = dataset.splitByContinuousAttribute(j);
+            if(subsets == null) {
+                LOG.debug("no possible subsets for attribute {}", j);
+                return Double.NaN;
+            }
+            entropy = calculateWeightedEntropy(subsets.last());
+        } else {
+            throw new AttributeException("unknown data type");
+        }
+        LOG.debug("the total entropy of the children when splitting on attribute {} is {}", j, entropy);
+        return entropy;
+    }
+
+    /**
+     * Evaluates the attributes from to to-1 in parallel by halving the range, each attribute writes its own entry.
+     */
+    private static class AttributeEvaluation extends RecursiveAction {
+        private final Dataset dataset;
+        private final int[] attributes;
+        private final double[] entropies;
+        private final int from;
+        private final int to;
+
+        private AttributeEvaluation(Dataset dataset, int[] attributes, double[] entropies, int from, int to) {
+            this.dataset = dataset;
+            this.attributes = attributes;
+            this.entropies = entropies;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from == 1) {
+                entropies[attributes[from]] = evaluate(dataset, attributes[from]);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new AttributeEvaluation(dataset, attributes, entropies, from, middle),
+                    new AttributeEvaluation(dataset, attributes, entropies, middle, to));
+        }
+    }
+
+    /**
+     * Evaluates the attributes of nodes with at least parallelThreshold samples and grows the subtrees of children with
+     * at least subtreeThreshold samples on the given pool, or builds serially if the pool is null. Children created
+     * afterwards inherit the setting.
+     */
+    void setPool(ForkJoinPool pool, int parallelThreshold, int subtreeThreshold) {
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+        this.subtreeThreshold = subtreeThreshold;
+    }
+
+    /**
+     * Evaluates only a random subset of the attributes of every node, see {@link ID3#setMaxFeatures(int)}. Children
+     * created afterwards inherit the setting and split their own generator from random.
+     */
+    void setMaxFeatures(int maxFeatures, double featureFraction, SplittableRandom random) {
+        this.maxFeatures = maxFeatures;
+        this.featureFraction = featureFraction;
+        this.random = random;
+    }
+
+    ForkJoinPool getPool() {
+        return pool;
+    }
+
+    int getSubtreeThreshold() {
+        return subtreeThreshold;
+    }
+
+    void setPrediction(int prediction) {
+        this.prediction = prediction;
+    }
+
+    void setLeaf() {
+        this.leaf = true;
+    }
+
+    Children branch(int attribute, double pivot) {
+        this.attribute = attribute;
+        this.attributeType = CONTINUOUS;
+        this.children = new ContinuousChildren(this, pivot);
+        return children;
+    }
+
+    Children branch(int attribute, List<Integer> values) {
+        this.attribute = attribute;
+        this.attributeType = DISCRETE;
+        this.children = new DiscreteChildren(this, values);
+        return children;
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    int getMaxLevel() {
+        return maxLevel;
+    }
+
+    int getMinNumberOfSamples() {
+        return minNumberOfSamples;
+    }
+
     public Children getChildren() {
         return children;
     }
@@ -0,0 +1,233 @@
+package ca.jacob.jml.tree;
+
+import ca.jacob.jml.math.Matrix;
+import ca.jacob.jml.math.Vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static ca.jacob.jml.Dataset.CONTINUOUS;
+import static ca.jacob.jml.Util.indices;
+
+/**
+ * Trees of {@link Node}s flattened one after the other into the same parallel arrays. The nodes of a tree are numbered
+ * breadth first from roots[t], so that the children of a node are contiguous. Attributes are indices into the original
+ * sample, so a walk reads the sample without copying or shrinking it.
+ *
+ * A discrete node keeps a table from value - base to child, or the sorted values when they are too spread out for a
+ * table. A walk stops at a node with no child for a discrete value, which predicts its own label like
+ * {@link Node#classify(Vector)}.
+ */
+public class TreeArena {
+    private static final int LEAF = -1;
+
+    private final int[] roots;
+    private final int[] attribute; // absolute attribute of the node, or LEAF
+    private final boolean[] continuous;
+    private final double[] pivot;
+    private final int[] child; // under child of a continuous node, offset into lookup of a discrete one
+    private final boolean[] sorted; // whether a discrete node keeps sorted values instead of a table
+    private final int[] base; // value of lookup[child] for a table
+    private final int[] span; // length of the node's lookup entries
+    private final int[] label;
+
+    private final int[] lookup; // child node, or LEAF for a value with no child
+    private final int[] keys; // value of every lookup entry of a sorted node
+
+    public TreeArena(List<Node> trees) {
+        roots = new int[trees.size()];
+        List<Node> order = new ArrayList<>();
+        List<int[]> columns = new ArrayList<>();
+        for(int t = 0; t < trees.size(); t++) {
+            Node root = trees.get(t);
+            roots[t] = order.size();
+            order.add(root);
+            columns.add(indices(width(root)));
+            for(int n = roots[t]; n < order.size(); n++) {
+                Node node = order.get(n);
+                if(node.isLeaf() || node.getChildren() == null) {
+                    continue;
+                }
+                int[] childColumns = remove(columns.get(n), node.getAttribute());
+                for(Node c : node.getChildren()) {
+                    order.add(c);
+                    columns.add(childColumns);
+                }
+            }
+        }
+
+        int count = order.size();
+        attribute = new int[count];
+        continuous = new boolean[count];
+        pivot = new double[count];
+        child = new int[count];
+        sorted = new boolean[count];
+        base = new int[count];
+        span = new int[count];
+        label = new int[count];
+
+        int[] lookup = new int[16];
+        int[] keys = new int[16];
+        int lookupSize = 0;
+        int next = 0;
+        for(int n = 0; n < count; n++) {
+            if(Arrays.binarySearch(roots, n) >= 0) {
+                next++; // the root of the next tree
+            }
+
+            Node node = order.get(n);
+            label[n] = node.predict();
+            Children children = node.getChildren();
+            if(node.isLeaf() || children == null) {
+                attribute[n] = LEAF;
+                continue;
+            }
+
+            attribute[n] = columns.get(n)[node.getAttribute()];
+            if(node.getAttributeType() == CONTINUOUS) {
+                continuous[n] = true;
+                pivot[n] = ((ContinuousChildren) children).getPivot();
+                child[n] = next;
+                next += 2;
+                continue;
+            }
+
+            DiscreteChildren discrete = (DiscreteChildren) children;
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for(int i = 0; i < discrete.size(); i++) {
+                min = Math.min(min, discrete.value(i));
+                max = Math.max(max, discrete.value(i));
+            }
+
+            long range = (long) max - min + 1;
+            boolean table = range <= 4L * discrete.size() + 16;
+            int size = discrete.size() == 0 ? 0 : table ? (int) range : discrete.size();
+            if(lookupSize + size > lookup.length) {
+                lookup = Arrays.copyOf(lookup, Math.max(lookup.length * 2, lookupSize + size));
+                keys = Arrays.copyOf(keys, lookup.length);
+            }
+
+            child[n] = lookupSize;
+            span[n] = size;
+            if(table) {
+                base[n] = min;
+                Arrays.fill(lookup, lookupSize, lookupSize + size, LEAF);
+                // The first child of a value wins, as in DiscreteChildren.predict
+                for(int i = discrete.size()-1; i >= 0; i--) {
+                    lookup[lookupSize + discrete.value(i) - min] = next + i;
+                }
+            } else {
+                sorted[n] = true;
+                int[] values = new int[size];
+                for(int i = 0; i < size; i++) {
+                    values[i] = discrete.value(i);
+                }
+                int[] ordered = values.clone();
+                Arrays.sort(ordered);
+                for(int k = 0; k < size; k++) {
+                    keys[lookupSize + k] = ordered[k];
+                    for(int i = 0; i < size; i++) {
+                        if(values[i] == ordered[k]) {
+                            lookup[lookupSize + k] = next + i;
+                            break;
+                        }
+                    }
+                }
+            }
+            lookupSize += size;
+            next += discrete.size();
+        }
+
+        this.lookup = Arrays.copyOf(lookup, lookupSize);
+        this.keys = Arrays.copyOf(keys, lookupSize);
+    }
+
+    /**
+     * Node at which the sample stops in tree t.
+     */
+    public int leaf(int t, Vector e) {
+        int n = roots[t];
+        while(attribute[n] != LEAF) {
+            int next = child(n, e.at(attribute[n]));
+            if(next == LEAF) {
+                break;
+            }
+            n = next;
+        }
+        return n;
+    }
+
+    /**
+     * Node at which row i of x stops in tree t, reading the attributes straight from the matrix.
+     */
+    public int leaf(int t, Matrix x, int i) {
+        int n = roots[t];
+        while(attribute[n] != LEAF) {
+            int next = child(n, x.at(i, attribute[n]));
+            if(next == LEAF) {
+                break;
+            }
+            n = next;
+        }
+        return n;
+    }
+
+    /**
+     * Class predicted at node n.
+     */
+    public int label(int n) {
+        return label[n];
+    }
+
+    /**
+     * Child of node n for the given value, or LEAF if a discrete node has no child for it.
+     */
+    private int child(int n, double value) {
+        if(continuous[n]) {
+            return value < pivot[n] ? child[n] : child[n] + 1;
+        }
+
+        int offset = child[n];
+        if(!sorted[n]) {
+            long index = (long) (int) value - base[n];
+            return index >= 0 && index < span[n] ? lookup[offset + (int) index] : LEAF;
+        }
+
+        int index = Arrays.binarySearch(keys, offset, offset + span[n], (int) value);
+        return index >= 0 ? lookup[index] : LEAF;
+    }
+
+    public int treeCount() {
+        return roots.length;
+    }
+
+    public int nodeCount() {
+        return attribute.length;
+    }
+
+    /**
+     * Number of attributes the samples have at least, a node of level l has lost l of them to its ancestors.
+     */
+    private static int width(Node node) {
+        if(node.isLeaf() || node.getChildren() == null) {
+            return 0;
+        }
+        int width = node.getAttribute() + node.getLevel() + 1;
+        for(Node child : node.getChildren()) {
+            width = Math.max(width, width(child));
+        }
+        return width;
+    }
+
+    private static int[] remove(int[] columns, int j) {
+        int[] remaining = new int[columns.length-1];
+        for(int k = 0, m = 0; k < columns.length; k++) {
+            if(k != j) {
+                remaining[m++] = columns[k];
+            }
+        }
+        return remaining;
+    }
+}
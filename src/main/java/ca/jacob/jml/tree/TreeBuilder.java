@@ -0,0 +1,153 @@
+package ca.jacob.jml.tree;
+
+import ca.jacob.jml.Dataset;
+import ca.jacob.jml.math.Tuple;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ca.jacob.jml.Dataset.CONTINUOUS;
+import static ca.jacob.jml.Dataset.DISCRETE;
+import static ca.jacob.jml.Util.calculateWeightedEntropy;
+
+/**
+ * Grows an ID3 tree over row ids of a root dataset instead of copying a dataset per node. Subclasses keep some
+ * per-node state for the continuous attributes (presorted rows, histograms, ...) and use it to find thresholds.
+ * Leaves, discrete attributes and the choice of the best attribute follow {@link Node#split(Dataset)}.
+ *
+ * @param <S> per-node state, indexed by the position of the attribute in the node's columns
+ */
+abstract class TreeBuilder<S> {
+    private static final Logger LOG = LoggerFactory.getLogger(TreeBuilder.class);
+
+    protected final Dataset root;
+    protected final int[] childOf; // child index of every root row, only valid for the rows being partitioned
+
+    TreeBuilder(Dataset root) {
+        this.root = root;
+        this.childOf = new int[root.sampleCount()];
+    }
+
+    /**
+     * Best pivot of the continuous attribute at position j (root column column) and the weighted entropy of its
+     * split, or null if the attribute cannot be split.
+     */
+    abstract Tuple<Double, Double> threshold(Dataset dataset, S state, int j, int column);
+
+    /**
+     * State of each child. {@link #childOf} holds the child of every row and childRows the rows of every child.
+     */
+    abstract List<S> partition(S state, int[] rows, int[][] childRows, int bestAttribute, int[] childColumns);
+
+    /**
+     * @param rows the root rows of this node, in their original order
+     * @param columns the root attributes still available to this node
+     */
+    void grow(Node node, int[] rows, int[] columns, S state) {
+        Dataset dataset = root.samples(rows, columns);
+        node.setPrediction(dataset.classes().valueOfMaxOccurrence());
+
+        int level = node.getLevel();
+        if(level == node.getMaxLevel() || dataset.entropy() == 0 || dataset.sampleCount() <= 1 || dataset.sampleCount() < node.getMinNumberOfSamples()) {
+            LOG.debug("found leaf - level: {}, entropy: {}, numOfSamples: {}", level, dataset.entropy(), dataset.sampleCount());
+            node.setLeaf();
+            return;
+        }
+
+        double minEntropy = -1;
+        int bestAttribute = -1;
+        double bestPivot = 0;
+        for(int j = 0; j < columns.length; j++) {
+            double entropy;
+            double pivot = 0;
+            if(dataset.attributeType(j) == DISCRETE) {
+                entropy = calculateWeightedEntropy(dataset.splitByDiscreteAttribute(j).last());
+            } else {
+                Tuple<Double, Double> threshold = threshold(dataset, state, j, columns[j]);
+                if(threshold == null) {
+                    LOG.debug("no possible subsets for attribute {}", j);
+                    continue;
+                }
+                pivot = threshold.first();
+                entropy = threshold.last();
+            }
+            LOG.debug("the total entropy of the children when splitting on attribute {} is {}", j, entropy);
+
+            if(bestAttribute < 0 || entropy < minEntropy) {
+                minEntropy = entropy;
+                bestAttribute = j;
+                bestPivot = pivot;
+            }
+        }
+        LOG.debug("the best attribute is {} for level {}", bestAttribute, level);
+
+        if(bestAttribute < 0 || dataset.entropy() <= minEntropy) {
+            node.setLeaf();
+            return;
+        }
+
+        Children children;
+        if(dataset.attributeType(bestAttribute) == CONTINUOUS) {
+            for(int i = 0; i < rows.length; i++) {
+                childOf[rows[i]] = dataset.value(i, bestAttribute) < bestPivot ? 0 : 1;
+            }
+            children = node.branch(bestAttribute, bestPivot);
+        } else {
+            List<Integer> values = new ArrayList<>();
+            Map<Integer, Integer> indices = new HashMap<>();
+            for(int i = 0; i < rows.length; i++) {
+                int value = (int) dataset.value(i, bestAttribute);
+                Integer index = indices.get(value);
+                if(index == null) {
+                    index = values.size();
+                    indices.put(value, index);
+                    values.add(value);
+                }
+                childOf[rows[i]] = index;
+            }
+            children = node.branch(bestAttribute, values);
+        }
+        LOG.debug("there will be {} children", children.size());
+
+        int[] childColumns = new int[columns.length-1];
+        for(int j = 0, k = 0; j < columns.length; j++) {
+            if(j != bestAttribute) {
+                childColumns[k++] = columns[j];
+            }
+        }
+
+        // Partition everything before growing any child, the children reuse childOf
+        int[] counts = new int[children.size()];
+        for(int row : rows) {
+            counts[childOf[row]]++;
+        }
+        int[][] childRows = new int[children.size()][];
+        for(int c = 0; c < children.size(); c++) {
+            childRows[c] = partition(rows, c, counts[c]);
+        }
+        List<S> childStates = partition(state, rows, childRows, bestAttribute, childColumns);
+
+        for(int c = 0; c < children.size(); c++) {
+            grow(children.get(c), childRows[c], childColumns, childStates.get(c));
+            childRows[c] = null;
+            childStates.set(c, null);
+        }
+    }
+
+    /**
+     * Rows of the given child, keeping their order.
+     */
+    int[] partition(int[] rows, int child, int count) {
+        int[] partition = new int[count];
+        for(int i = 0, k = 0; i < rows.length; i++) {
+            if(childOf[rows[i]] == child) {
+                partition[k++] = rows[i];
+            }
+        }
+        return partition;
+    }
+}
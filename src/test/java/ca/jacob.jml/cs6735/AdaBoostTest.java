@@ -2,6 +2,9 @@ package ca.jacob.jml.cs6735;
 
 import ca.jacob.jml.Algorithm;
 import ca.jacob.jml.KFold;
+import ca.jacob.jml.Model;
+import ca.jacob.jml.WeightedAlgorithm;
+import ca.jacob.jml.math.distribution.Gaussian;
 import ca.jacob.jml.ensemble.AdaBoost;
 import ca.jacob.jml.tree.ID3;
 import ca.jacob.jml.bayes.NaiveBayes;
@@ -15,6 +18,7 @@ import org.slf4j.LoggerFactory;
 
 import static ca.jacob.cs6735.DataUtil.loadBreastCancerData;
 import static ca.jacob.cs6735.DataUtil.loadCarData;
+import static ca.jacob.cs6735.DataUtil.loadEColiData;
 import static ca.jacob.jml.Util.readCSV;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertTrue;
@@ -67,4 +71,43 @@ public class AdaBoostTest {
         LOG.info("Car Multi Class AdaBoost KFold Test accuracy: {}", accuracies.mean());
         assertTrue(accuracies.mean() > 80);
     }
+
+    @Test
+    public void testWeightedDatasetMatchesDuplicates() throws Throwable {
+        Dataset[] datasets = new Dataset[]{loadCarData(AdaBoostTest.class), loadEColiData(AdaBoostTest.class)};
+        WeightedAlgorithm[] algorithms = new WeightedAlgorithm[]{new ID3(), new NaiveBayes(new Gaussian())};
+        for(Dataset d : datasets) {
+            double[] weights = new double[d.sampleCount()];
+            Vector duplicated = new Vector();
+            for(int i = 0; i < weights.length; i++) {
+                weights[i] = 1 + i % 3;
+                for(int k = 0; k < weights[i]; k++) {
+                    duplicated.add(i);
+                }
+            }
+
+            for(WeightedAlgorithm algorithm : algorithms) {
+                Model expected = algorithm.fit(d.samples(duplicated));
+                Model actual = algorithm.fit(d.weighted(weights));
+                for(int i = 0; i < d.sampleCount(); i++) {
+                    Vector sample = d.getX().row(i);
+                    assertEquals(expected.predict(sample), actual.predict(sample));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWeightedAndResampled() throws Throwable {
+        Dataset dataset = loadBreastCancerData(AdaBoostTest.class);
+        AdaBoost resampled = new AdaBoost(new ID3(1), 50, 0.3);
+        resampled.setResampling(true);
+        AdaBoost weighted = new AdaBoost(new ID3(1), 50, 0.3);
+
+        double resampledAccuracy = kFold.generateReport(resampled, dataset).getAccuracies().mean();
+        double weightedAccuracy = kFold.generateReport(weighted, dataset).getAccuracies().mean();
+        LOG.info("resampled accuracy: {}, weighted accuracy: {}", resampledAccuracy, weightedAccuracy);
+        assertTrue(resampledAccuracy > 90);
+        assertTrue(weightedAccuracy > 90);
+    }
 }
@@ -1,6 +1,7 @@
 package ca.jacob.jml.cs6735;
 
 import ca.jacob.jml.Dataset;
+import ca.jacob.jml.DatasetView;
 import ca.jacob.jml.exceptions.DataException;
 import ca.jacob.jml.math.Matrix;
 import ca.jacob.jml.math.Tuple;
@@ -120,4 +121,25 @@ public class DatasetTest {
         Dataset d = loadLetterData(DatasetTest.class);
         assertEquals(4.699811, d.entropy(), DELTA);
     }
+
+    @Test
+    public void testViews() {
+        Matrix x = new Matrix(new int[][]{
+                {1, 2, 3},
+                {4, 5, 6},
+                {7, 8, 9}});
+        Vector y = new Vector(new int[]{0, 1, 2});
+        Dataset d = new Dataset(x, y, DISCRETE);
+
+        Dataset view = d.samples(new int[]{2, 1});
+        view.dropAttribute(0);
+        Dataset nested = view.samples(new int[]{1});
+
+        assertTrue(nested instanceof DatasetView);
+        assertEquals(1, nested.sampleCount());
+        assertEquals(2, nested.attributeCount());
+        assertEquals(new Vector(new int[]{5, 6, 1}), nested.sample(0));
+        assertEquals(new Matrix(new int[][]{{8, 9}, {5, 6}}), view.getX());
+        assertEquals(3, d.attributeCount());
+    }
 }
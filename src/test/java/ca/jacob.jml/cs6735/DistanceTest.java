@@ -1,13 +1,18 @@
 package ca.jacob.jml.cs6735;
 
+import ca.jacob.jml.math.distance.Chebyshev;
 import ca.jacob.jml.math.distance.Distance;
 import ca.jacob.jml.math.distance.Euclidean;
 import ca.jacob.jml.math.distance.Hamming;
+import ca.jacob.jml.math.distance.Manhattan;
+import ca.jacob.jml.math.distance.Minkowski;
+import ca.jacob.jml.math.distance.SquaredEuclidean;
 import ca.jacob.jml.math.Vector;
 import org.junit.Test;
 
 import static java.lang.Math.sqrt;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class DistanceTest {
     private final double DELTA = 1e-5;
@@ -27,4 +32,19 @@ public class DistanceTest {
         Vector two = new Vector(new int[]{1, 1, 0, 0});
         assertEquals(3, df.distance(one, two), DELTA);
     }
+
+    @Test
+    public void testPrimitive() {
+        double[] one = new double[]{1, 0, 1, 2};
+        double[] two = new double[]{1, 1, 0, 0};
+        Distance[] distances = new Distance[]{new Euclidean(), new SquaredEuclidean(), new Manhattan(), new Chebyshev(), new Minkowski(3), new Hamming()};
+        double[] expected = new double[]{sqrt(6), 6, 4, 2, Math.pow(10, 1. / 3), 3};
+        for(int d = 0; d < distances.length; d++) {
+            Distance df = distances[d];
+            assertEquals(expected[d], df.distance(new Vector(one), new Vector(two)), DELTA);
+            assertEquals(expected[d], df.distance(one, two), DELTA);
+            assertEquals(expected[d], df.distance(one, two, expected[d]), DELTA);
+            assertTrue(df.distance(one, two, expected[d] * 0.9) > expected[d] * 0.9);
+        }
+    }
 }
@@ -1,6 +1,12 @@
 package ca.jacob.jml.cs6735;
 
+import ca.jacob.jml.exceptions.DataException;
+import ca.jacob.jml.math.distribution.Density;
+import ca.jacob.jml.math.distribution.Distribution;
 import ca.jacob.jml.math.distribution.Gaussian;
+import ca.jacob.jml.math.distribution.KernelDensity;
+import ca.jacob.jml.math.distribution.Laplace;
+import ca.jacob.jml.math.distribution.LogNormal;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,10 +15,52 @@ import static org.junit.Assert.assertEquals;
 
 public class DistributionTest {
     private static final Logger LOG = LoggerFactory.getLogger(DistributionTest.class);
+    private static final double DELTA = 1e-9;
 
     @Test
     public void testGaussianDistribution() {
         Gaussian distribution = new Gaussian();
         assertEquals(0, distribution.probability(0, 0, 0), 1e-10);
     }
+
+    @Test(expected = DataException.class)
+    public void testGaussianDensityRejectsNaN() {
+        new Gaussian().density(0, Double.NaN);
+    }
+
+    @Test
+    public void testDensities() {
+        double[] xs = new double[]{-3, -0.5, 0.1, 1, 2.5, 7};
+        double[] out = new double[xs.length];
+        Distribution[] distributions = new Distribution[]{new Gaussian(), new Laplace(), new LogNormal()};
+        for(Distribution distribution : distributions) {
+            Density density = distribution.density(1.5, 0.8);
+            density.logDensity(xs, out);
+            for(int i = 0; i < xs.length; i++) {
+                assertEquals(distribution.logProbability(xs[i], 1.5, 0.8), density.logDensity(xs[i]), DELTA);
+                assertEquals(distribution.probability(xs[i], 1.5, 0.8), density.density(xs[i]), DELTA);
+                assertEquals(density.logDensity(xs[i]), out[i], DELTA);
+            }
+            assertEquals(1, integrate(density, -20, 30), 1e-4);
+
+            // a standard deviation of 0 has no density, like Gaussian.probability
+            assertEquals(0, distribution.density(1.5, 0).density(1.5), 0);
+        }
+
+        KernelDensity kde = new KernelDensity(new double[]{0, 1, 1.5, 4, 4.2});
+        assertEquals(1, integrate(kde, -20, 30), 1e-4);
+        assertEquals(Math.log(new Gaussian().probability(0, 3, 2)), new KernelDensity(new double[]{3}, 2).logDensity(0), DELTA);
+        // far from every value the kernels underflow, their logs do not
+        assertEquals(-5e9, new KernelDensity(new double[]{0}, 1).logDensity(1e5), 1);
+    }
+
+    private static double integrate(Density density, double from, double to) {
+        int steps = 200000;
+        double width = (to - from) / steps;
+        double sum = 0;
+        for(int i = 0; i < steps; i++) {
+            sum += density.density(from + (i + 0.5) * width) * width;
+        }
+        return sum;
+    }
 }
@@ -4,9 +4,13 @@ import ca.jacob.jml.Algorithm;
 import ca.jacob.jml.Dataset;
 import ca.jacob.jml.Model;
 import ca.jacob.jml.tree.Children;
+import ca.jacob.jml.tree.CompiledID3Model;
+import ca.jacob.jml.tree.ContinuousChildren;
+import ca.jacob.jml.tree.HistogramID3;
 import ca.jacob.jml.tree.ID3;
 import ca.jacob.jml.tree.ID3Model;
 import ca.jacob.jml.tree.Node;
+import ca.jacob.jml.tree.PresortedID3;
 import ca.jacob.jml.math.Matrix;
 import ca.jacob.jml.math.Vector;
 import org.junit.Before;
@@ -14,11 +18,18 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
 import static ca.jacob.cs6735.DataUtil.*;
+import static ca.jacob.jml.Dataset.CONTINUOUS;
 import static ca.jacob.jml.Dataset.DISCRETE;
+import static ca.jacob.jml.Util.indices;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
 
 public class ID3Test {
     private static final Logger LOG = LoggerFactory.getLogger(ID3Test.class);
@@ -126,4 +137,133 @@ public class ID3Test {
         double accuracy = model.accuracy(letterData);
         assertEquals(93.16, accuracy, 0.01);
     }
+
+    @Test
+    public void testPresortedBuildsSameTree() throws Throwable {
+        Dataset[] datasets = new Dataset[]{loadCarData(ID3Test.class), loadEColiData(ID3Test.class), loadLetterData(ID3Test.class)};
+        for(Dataset d : datasets) {
+            ID3Model expected = (ID3Model) new ID3(ID3.MAX_LEVEL_NONE, 1).fit(d);
+            ID3Model actual = (ID3Model) new PresortedID3(ID3.MAX_LEVEL_NONE, 1).fit(d);
+            assertSameTree(expected.getRoot(), actual.getRoot());
+        }
+    }
+
+    @Test
+    public void testParallelBuildsSameTree() throws Throwable {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        Dataset[] datasets = new Dataset[]{loadCarData(ID3Test.class), loadEColiData(ID3Test.class), loadLetterData(ID3Test.class)};
+        for(Dataset d : datasets) {
+            ID3 serial = new ID3(ID3.MAX_LEVEL_NONE, 1);
+            serial.setPool(null);
+            ID3 parallel = new ID3(ID3.MAX_LEVEL_NONE, 1);
+            parallel.setPool(pool);
+            parallel.setParallelThreshold(0);
+            parallel.setSubtreeThreshold(0);
+
+            ID3Model expected = (ID3Model) serial.fit(d);
+            ID3Model actual = (ID3Model) parallel.fit(d);
+            assertSameTree(expected.getRoot(), actual.getRoot());
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testCompiledPredictsSame() throws Throwable {
+        Dataset[] datasets = new Dataset[]{loadBreastCancerData(ID3Test.class), loadCarData(ID3Test.class), loadEColiData(ID3Test.class), loadLetterData(ID3Test.class)};
+        for(Dataset d : datasets) {
+            ID3Model model = (ID3Model) new ID3(8).fit(d.samples(indices(d.sampleCount() / 2)));
+            CompiledID3Model compiled = model.compile();
+            for(int i = 0; i < d.sampleCount(); i++) {
+                Vector sample = d.getX().row(i);
+                assertEquals(model.predict(sample), compiled.predict(sample));
+            }
+        }
+
+        Vector unseen = new Vector(new int[]{1, 7, 1});
+        assertEquals(id3.fit(dataset).predict(unseen), ((ID3Model) id3.fit(dataset)).compile().predict(unseen));
+    }
+
+    @Test
+    public void testBatchPredict() throws Throwable {
+        Dataset d = loadLetterData(ID3Test.class);
+        ID3Model model = (ID3Model) new ID3(ID3.MAX_LEVEL_NONE, ID3.MIN_SAMPLES_NONE).fit(d);
+        CompiledID3Model compiled = model.compile();
+
+        int[] expected = new int[d.sampleCount()];
+        for(int i = 0; i < expected.length; i++) {
+            expected[i] = model.predict(d.getX().row(i));
+        }
+
+        int[] predictions = new int[d.sampleCount()];
+        ForkJoinPool pool = new ForkJoinPool(4);
+        compiled.setPool(pool);
+        compiled.predict(d.getX(), predictions);
+        assertTrue(Arrays.equals(expected, predictions));
+
+        model.setPool(null);
+        model.predict(d.getX(), predictions);
+        assertTrue(Arrays.equals(expected, predictions));
+
+        assertEquals(93.16, compiled.accuracy(d), 0.01);
+        pool.shutdown();
+    }
+
+    @Test
+    public void testHistogram() throws Throwable {
+        Dataset letterData = loadLetterData(ID3Test.class);
+
+        double accuracy = new HistogramID3(ID3.MAX_LEVEL_NONE, ID3.MIN_SAMPLES_NONE).fit(letterData).accuracy(letterData);
+        assertEquals(93.16, accuracy, 0.5);
+
+        double coarse = new HistogramID3(ID3.MAX_LEVEL_NONE, ID3.MIN_SAMPLES_NONE, 2).fit(letterData).accuracy(letterData);
+        assertTrue(coarse < accuracy);
+    }
+
+    @Test
+    public void testMaxFeaturesKeepsDrawing() {
+        // only the last of 16 attributes splits the samples, the others are constant, continuous or discrete
+        int n = 40;
+        Matrix x = new Matrix(new double[n][16]);
+        Vector y = new Vector(new int[n]);
+        Vector attributeTypes = new Vector(new int[16]);
+        for(int i = 0; i < n; i++) {
+            x.set(i, 15, i % 4);
+            y.set(i, i % 4 < 2 ? 0 : 1);
+        }
+        for(int j = 0; j < 15; j++) {
+            attributeTypes.set(j, j % 2 == 0 ? CONTINUOUS : DISCRETE);
+        }
+        attributeTypes.set(15, DISCRETE);
+        Dataset d = new Dataset(x, y, attributeTypes);
+
+        ID3 sqrt = new ID3();
+        sqrt.setMaxFeatures(ID3.SQRT_FEATURES);
+        ID3 fraction = new ID3();
+        fraction.setFeatureFraction(0.1);
+        for(ID3 algorithm : new ID3[]{sqrt, fraction}) {
+            for(long seed = 0; seed < 20; seed++) {
+                ID3Model model = (ID3Model) algorithm.fit(d, new SplittableRandom(seed));
+                assertEquals(15, model.getRoot().getAttribute());
+                assertEquals(100., model.accuracy(d), DELTA);
+            }
+        }
+    }
+
+    private static void assertSameTree(Node expected, Node actual) {
+        assertEquals(expected.isLeaf(), actual.isLeaf());
+        assertEquals(expected.predict(), actual.predict());
+        assertEquals(expected.getAttribute(), actual.getAttribute());
+        if(expected.getChildren() == null) {
+            assertNull(actual.getChildren());
+            return;
+        }
+
+        assertEquals(expected.getChildren().size(), actual.getChildren().size());
+        if(expected.getChildren() instanceof ContinuousChildren) {
+            assertEquals(((ContinuousChildren) expected.getChildren()).getPivot(), ((ContinuousChildren) actual.getChildren()).getPivot());
+        }
+        for(int i = 0; i < expected.getChildren().size(); i++) {
+            assertSameTree(expected.getChildren().get(i), actual.getChildren().get(i));
+        }
+    }
 }
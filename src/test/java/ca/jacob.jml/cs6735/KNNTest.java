@@ -3,19 +3,39 @@ package ca.jacob.jml.cs6735;
 import ca.jacob.jml.Algorithm;
 import ca.jacob.jml.Dataset;
 import ca.jacob.jml.KFold;
+import ca.jacob.jml.Model;
+import ca.jacob.jml.math.Matrix;
+import ca.jacob.jml.math.distance.Distance;
+import ca.jacob.jml.math.distance.Euclidean;
 import ca.jacob.jml.math.distance.Hamming;
+import ca.jacob.jml.math.distance.SquaredEuclidean;
+import ca.jacob.jml.neighbors.BallTree;
+import ca.jacob.jml.neighbors.KDTree;
 import ca.jacob.jml.neighbors.KNN;
+import ca.jacob.jml.neighbors.KNNModel;
+import ca.jacob.jml.neighbors.LSH;
+import ca.jacob.jml.neighbors.LSHModel;
+import ca.jacob.jml.neighbors.SpatialIndex;
 import ca.jacob.jml.Report;
 import ca.jacob.jml.math.Vector;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import static ca.jacob.cs6735.DataUtil.loadBreastCancerData;
+import static ca.jacob.cs6735.DataUtil.loadCarData;
+import static ca.jacob.cs6735.DataUtil.loadEColiData;
+import static ca.jacob.jml.Dataset.CONTINUOUS;
+import static ca.jacob.jml.Util.range;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class KNNTest {
     private static final Logger LOG = LoggerFactory.getLogger(KNNTest.class);
+    private static final double DELTA = 1e-9;
 
     @Test
     public void testKNN() throws Throwable {
@@ -31,4 +51,168 @@ public class KNNTest {
 
         assertTrue(r.accuracy() > 90);
     }
+
+    @Test
+    public void testIndexFindsNearestAndTies() throws Throwable {
+        Dataset[] datasets = new Dataset[]{loadEColiData(KNNTest.class), loadBreastCancerData(KNNTest.class)};
+        Distance[] distances = new Distance[]{new Euclidean(), new Hamming()};
+        int k = 5;
+        for(int t = 0; t < datasets.length; t++) {
+            Matrix x = datasets[t].getX();
+            Distance df = distances[t];
+            SpatialIndex[] indices = new SpatialIndex[]{new KDTree(x, df), new BallTree(x, df)};
+            for(SpatialIndex index : indices) {
+                for(int q = 0; q < x.rowCount(); q += 7) {
+                    Vector e = x.row(q);
+                    double[] all = new double[x.rowCount()];
+                    for(int i = 0; i < all.length; i++) {
+                        all[i] = df.distance(x.row(i), e);
+                    }
+                    Arrays.sort(all);
+
+                    int tied = k;
+                    while(tied < all.length && all[tied] == all[k-1]) {
+                        tied++;
+                    }
+
+                    int[] nearest = index.query(e, k);
+                    assertEquals(tied, nearest.length);
+                    for(int i = 0; i < nearest.length; i++) {
+                        assertEquals(all[i], df.distance(x.row(nearest[i]), e), DELTA);
+                    }
+                }
+                assertTrue(index.getPrunedNodes() > 0);
+            }
+        }
+    }
+
+    @Test
+    public void testBallTreeWithSquaredEuclidean() throws Throwable {
+        Random random = new Random(1);
+        double[][] rows = new double[2000][2];
+        double[][] queries = new double[200][2];
+        for(double[][] values : new double[][][]{rows, queries}) {
+            for(double[] row : values) {
+                for(int j = 0; j < row.length; j++) {
+                    row[j] = random.nextDouble();
+                }
+            }
+        }
+        Matrix x = new Matrix(rows);
+        Distance df = new SquaredEuclidean();
+        int k = 5;
+
+        BallTree index = new BallTree(x, df);
+        for(double[] query : queries) {
+            Vector e = new Vector(query);
+            double[] all = new double[x.rowCount()];
+            for(int i = 0; i < all.length; i++) {
+                all[i] = df.distance(x.row(i), e);
+            }
+            Arrays.sort(all);
+
+            int[] nearest = index.query(e, k);
+            assertEquals(k, nearest.length);
+            for(int i = 0; i < k; i++) {
+                assertEquals(all[i], df.distance(x.row(nearest[i]), e), DELTA);
+            }
+        }
+
+        assertTrue(index.getPrunedNodes() > 0);
+
+        // AUTO does not pick a ball tree for a distance that is not a metric, even with many attributes
+        Matrix wide = new Matrix(new double[50][KNN.KD_TREE_MAX_DIMENSION + 4]);
+        Dataset d = new Dataset(wide, new Vector(new int[wide.rowCount()]), CONTINUOUS);
+        KNNModel model = (KNNModel) new KNN(k, df, KNN.AUTO).fit(d);
+        assertTrue(model.getIndex() instanceof KDTree);
+    }
+
+    @Test
+    public void testBatchPredictsSame() throws Throwable {
+        Dataset[] datasets = new Dataset[]{loadEColiData(KNNTest.class), loadBreastCancerData(KNNTest.class)};
+        Distance[] distances = new Distance[]{new Euclidean(), new Hamming()};
+        for(int t = 0; t < datasets.length; t++) {
+            Matrix x = datasets[t].getX();
+            Model model = new KNN(3, distances[t]).fit(datasets[t]);
+
+            int[] predictions = new int[x.rowCount()];
+            model.predict(x, predictions);
+            for(int i = 0; i < x.rowCount(); i++) {
+                assertEquals(model.predict(x.row(i)), predictions[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testBatchPredictsSameWithTies() throws Throwable {
+        // Values on a grid make many neighbours exactly as far as the k-th one
+        Random random = new Random(1);
+        for(int t = 0; t < 300; t++) {
+            double[][] rows = new double[40][2];
+            int[] classes = new int[rows.length];
+            for(int i = 0; i < rows.length; i++) {
+                for(int j = 0; j < rows[i].length; j++) {
+                    rows[i][j] = random.nextInt(10) / 10.0;
+                }
+                classes[i] = random.nextInt(3);
+            }
+            Matrix x = new Matrix(rows);
+            Model model = new KNN(3, new Euclidean(), KNN.BRUTE_FORCE).fit(new Dataset(x, new Vector(classes), CONTINUOUS));
+
+            int[] predictions = new int[x.rowCount()];
+            model.predict(x, predictions);
+            for(int i = 0; i < x.rowCount(); i++) {
+                assertEquals(model.predict(x.row(i)), predictions[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testPackedHamming() throws Throwable {
+        Dataset dataset = loadCarData(KNNTest.class);
+        Dataset train = dataset.samples(range(0, dataset.sampleCount() / 2));
+        Matrix x = dataset.getX();
+
+        final Distance hamming = new Hamming();
+        Distance unpacked = new Distance() {
+            @Override
+            public double distance(Vector one, Vector two) {
+                return hamming.distance(one, two);
+            }
+        };
+        Model expected = new KNN(5, unpacked).fit(train);
+        Model actual = new KNN(5, hamming).fit(train);
+        for(int i = 0; i < x.rowCount(); i += 3) {
+            Vector sample = x.row(i);
+            assertEquals(expected.predict(sample), actual.predict(sample));
+        }
+
+        Vector unseen = x.row(0).clone();
+        unseen.set(0, 42);
+        assertEquals(expected.predict(unseen), actual.predict(unseen));
+    }
+
+    @Test
+    public void testLSHFindsTrainingSamples() throws Throwable {
+        Dataset[] datasets = new Dataset[]{loadEColiData(KNNTest.class), loadBreastCancerData(KNNTest.class)};
+        Distance[] distances = new Distance[]{new Euclidean(), new Hamming()};
+        for(int t = 0; t < datasets.length; t++) {
+            Matrix x = datasets[t].getX();
+            LSHModel model = (LSHModel) new LSH(1, distances[t], 4, 6, 1L).fit(datasets[t]);
+
+            // a training sample and its duplicates always share its buckets, so all of them are found
+            assertEquals(1, model.recall(x), DELTA);
+            assertEquals(0, model.getQueryCount()); // measuring recall does not count as queries
+
+            int[] predictions = new int[x.rowCount()];
+            model.predict(x, predictions);
+            assertEquals(x.rowCount(), model.getQueryCount());
+            assertTrue(model.getMeanCandidates() <= x.rowCount());
+
+            model.resetStats();
+            for(int i = 0; i < x.rowCount(); i++) {
+                assertEquals(model.predict(x.row(i)), predictions[i]);
+            }
+        }
+    }
 }
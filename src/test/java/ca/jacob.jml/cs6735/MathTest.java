@@ -8,6 +8,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static ca.jacob.cs6735.DataUtil.loadEColiData;
+import static ca.jacob.jml.math.Util.argsort;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public class MathTest {
@@ -40,4 +42,10 @@ public class MathTest {
         double probability = new Gaussian().probability(71.5, 73, 6.2);
         assertEquals(0.0624896575937, probability, DELTA);
     }
+
+    @Test
+    public void testArgsort() {
+        int[] order = argsort(new double[]{3, 1, 2, 1, 0});
+        assertArrayEquals(new int[]{4, 1, 3, 2, 0}, order);
+    }
 }
@@ -53,4 +53,62 @@ public class MatrixTest {
         matrix.setCol(matrix.colCount()-1, new Vector(new int[]{1, 1}));
         assertEquals(new Matrix(new int[][]{{1, 2, 1}, {1, 2, 1}}), matrix);
     }
+
+    @Test
+    public void testDropAndSwapCols() {
+        matrix.dropCol(0);
+        matrix.swapCols(0, 1);
+        assertEquals(new Matrix(new int[][]{{3, 2}, {3, 2}}), matrix);
+        assertEquals(new Vector(new int[]{3, 2}), matrix.row(1));
+    }
+
+    @Test
+    public void testColumnMajor() {
+        Matrix m = matrix.toLayout(Matrix.COLUMN_MAJOR);
+        assertEquals(matrix, m);
+        assertEquals(new Vector(new int[]{2, 2}), m.col(1));
+        m.pushRow(new Vector(new int[]{4, 5, 6}));
+        assertEquals(new Vector(new int[]{2, 2, 5}), m.col(1));
+    }
+
+    @Test
+    public void testRowsAreCopiedOnWrite() {
+        Matrix m = matrix.rows(new Vector(new int[]{1}));
+        m.set(0, 0, 5);
+        assertEquals(1., matrix.at(1, 0));
+
+        Vector row = matrix.row(0);
+        row.set(0, 5);
+        assertEquals(1., matrix.at(0, 0));
+    }
+
+    @Test
+    public void testView() {
+        Matrix m = new Matrix(new int[][]{{1, 2, 3}, {4, 5, 6}, {7, 8, 9}});
+        int[] rows = new int[]{2, 0};
+        int[] cols = new int[]{1, 2};
+        Matrix view = m.view(rows, cols);
+        assertEquals(m.rows(rows).cols(cols), view);
+        assertEquals(new Matrix(new int[][]{{9}}), m.rows(new int[]{1, 2}).view(new int[]{1}, new int[]{2}));
+
+        view.set(0, 0, 0);
+        assertEquals(8., m.at(2, 1));
+        assertEquals(0., view.at(0, 0));
+    }
+
+    @Test
+    public void testViewsKeepValuesAfterParentWrites() {
+        Matrix m = new Matrix(new int[][]{{1, 2}, {3, 4}});
+        Vector r0 = m.row(0);
+        m.setRow(0, m.row(1));
+        m.setRow(1, r0);
+        assertEquals(new Matrix(new int[][]{{3, 4}, {1, 2}}), m);
+
+        Vector row = m.row(0);
+        Vector col = m.col(0);
+        m.set(0, 0, 9);
+        assertEquals(new Vector(new double[]{3., 4.}), row);
+        assertEquals(new Vector(new double[]{3., 1.}), col);
+        assertEquals(9., m.at(0, 0), 0);
+    }
 }
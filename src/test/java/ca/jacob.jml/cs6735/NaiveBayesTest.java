@@ -2,7 +2,9 @@ package ca.jacob.jml.cs6735;
 
 import ca.jacob.jml.*;
 import ca.jacob.jml.math.distribution.Gaussian;
+import ca.jacob.jml.bayes.CompiledNaiveBayesModel;
 import ca.jacob.jml.bayes.Continuous;
+import ca.jacob.jml.bayes.NaiveBayesAccumulator;
 import ca.jacob.jml.bayes.NaiveBayes;
 import ca.jacob.jml.bayes.NaiveBayesModel;
 import ca.jacob.jml.bayes.ClassSummary;
@@ -14,10 +16,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static ca.jacob.cs6735.DataUtil.loadBreastCancerData;
+import static ca.jacob.cs6735.DataUtil.loadCarData;
 import static ca.jacob.cs6735.DataUtil.loadEColiData;
 import static ca.jacob.jml.Dataset.CONTINUOUS;
+import static ca.jacob.jml.Dataset.DISCRETE;
+import static ca.jacob.jml.Util.range;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertTrue;
 
@@ -99,4 +105,134 @@ public class NaiveBayesTest {
 
         LOG.info("NaiveBayes Accuracy: {}%", accuracies.mean());
     }
+
+    @Test
+    public void testCompiledPredictsSame() throws Throwable {
+        Dataset[] datasets = new Dataset[]{loadEColiData(NaiveBayesTest.class), loadBreastCancerData(NaiveBayesTest.class), loadCarData(NaiveBayesTest.class)};
+        for(Dataset dataset : datasets) {
+            Dataset train = dataset.samples(range(0, dataset.sampleCount() / 2));
+            NaiveBayesModel m = (NaiveBayesModel) new NaiveBayes(new Gaussian()).fit(train);
+            CompiledNaiveBayesModel compiled = m.compile();
+
+            Matrix x = dataset.getX();
+            int[] predictions = new int[x.rowCount()];
+            compiled.predict(x, predictions);
+            for(int i = 0; i < x.rowCount(); i++) {
+                assertEquals(m.predict(x.row(i)), compiled.predict(x.row(i)));
+                assertEquals(predictions[i], compiled.predict(x.row(i)));
+            }
+        }
+    }
+
+    @Test
+    public void testCompiledDoesNotUnderflow() {
+        // 1200 attributes of probability 1/11 for class 1 and 1/2 for class 2 multiply to 0 for both classes, their
+        // logs still favour class 2
+        int d = 1200;
+        double[][] x = new double[40][d];
+        double[] y = new double[40];
+        for(int i = 0; i < x.length; i++) {
+            for(int j = 0; j < d; j++) {
+                x[i][j] = i < 20 ? i : (j + i % 2) % 20;
+            }
+            y[i] = i < 20 ? 1 : 2;
+        }
+        Dataset dataset = new Dataset(new Matrix(x), new Vector(y), DISCRETE);
+        NaiveBayesModel m = (NaiveBayesModel) new NaiveBayes().fit(dataset);
+
+        double[] sample = new double[d];
+        for(int j = 0; j < d; j++) {
+            sample[j] = j % 20;
+        }
+        for(ClassSummary summary : m.getSummaries()) {
+            assertEquals(0, summary.probability(new Vector(sample)), 0);
+        }
+        assertEquals(2, m.compile().predict(new Vector(sample)));
+    }
+
+    @Test
+    public void testWeightScaleDoesNotMatter() throws Throwable {
+        Dataset[] datasets = new Dataset[]{loadEColiData(NaiveBayesTest.class), loadCarData(NaiveBayesTest.class)};
+        for(Dataset dataset : datasets) {
+            NaiveBayes naiveBayes = new NaiveBayes(new Gaussian());
+            int n = dataset.sampleCount();
+            double[] counts = new double[n];
+            double[] normalised = new double[n];
+            double[] ones = new double[n];
+            for(int i = 0; i < n; i++) {
+                counts[i] = 1 + i % 3;
+                normalised[i] = counts[i] / (2. * n);
+                ones[i] = 1. / n;
+            }
+
+            NaiveBayesModel expected = (NaiveBayesModel) naiveBayes.fit(dataset, counts);
+            NaiveBayesModel actual = (NaiveBayesModel) naiveBayes.fit(dataset, normalised);
+            assertSameSummaries(expected, actual);
+
+            // weights that are all equal give the unweighted model whatever they add up to
+            assertSameSummaries((NaiveBayesModel) naiveBayes.fit(dataset), (NaiveBayesModel) naiveBayes.fit(dataset, ones));
+        }
+    }
+
+    private static void assertSameSummaries(NaiveBayesModel expected, NaiveBayesModel actual) {
+        assertEquals(expected.getSummaries().size(), actual.getSummaries().size());
+        for(int c = 0; c < expected.getSummaries().size(); c++) {
+            ClassSummary a = expected.getSummaries().get(c);
+            ClassSummary b = actual.getSummaries().get(c);
+            assertEquals(a.getClassValue(), b.getClassValue());
+            assertEquals(a.getClassProbability(), b.getClassProbability(), DELTA);
+            for(int j = 0; j < a.getAttributes().size(); j++) {
+                for(double value = 0; value < 10; value += 0.25) {
+                    assertEquals(a.getAttributes().get(j).probability(value), b.getAttributes().get(j).probability(value), DELTA);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPartialFitAndMergeMatchFit() throws Throwable {
+        Dataset[] datasets = new Dataset[]{loadEColiData(NaiveBayesTest.class), loadCarData(NaiveBayesTest.class)};
+        for(Dataset dataset : datasets) {
+            NaiveBayes naiveBayes = new NaiveBayes(new Gaussian());
+            naiveBayes.setPool(null);
+            NaiveBayesModel expected = (NaiveBayesModel) naiveBayes.fit(dataset);
+
+            int n = dataset.sampleCount();
+            NaiveBayesAccumulator streamed = naiveBayes.accumulator();
+            for(int from = 0; from < n; from += 50) {
+                streamed.partialFit(dataset.samples(range(from, Math.min(from + 50, n))));
+            }
+
+            NaiveBayesAccumulator merged = naiveBayes.accumulator();
+            NaiveBayesAccumulator other = naiveBayes.accumulator();
+            merged.partialFit(dataset, 0, n / 3);
+            other.partialFit(dataset, n / 3, n);
+            merged.merge(other);
+            assertEquals(n, merged.sampleCount());
+
+            naiveBayes.setPool(new ForkJoinPool(2));
+            Model parallel = naiveBayes.fit(dataset);
+
+            Model[] models = new Model[]{streamed.model(), merged.model(), parallel};
+            for(Model actual : models) {
+                List<ClassSummary> summaries = ((NaiveBayesModel) actual).getSummaries();
+                for(int c = 0; c < summaries.size(); c++) {
+                    ClassSummary summary = summaries.get(c);
+                    assertEquals(expected.getSummaries().get(c).getClassValue(), summary.getClassValue());
+                    assertEquals(expected.getSummaries().get(c).getClassProbability(), summary.getClassProbability(), DELTA);
+                    if(summary.getAttributes().get(0) instanceof Continuous) {
+                        Continuous a = (Continuous) summary.getAttributes().get(0);
+                        Continuous b = (Continuous) expected.getSummaries().get(c).getAttributes().get(0);
+                        assertEquals(b.getMean(), a.getMean(), DELTA);
+                        assertEquals(b.getStdev(), a.getStdev(), DELTA);
+                    }
+                }
+
+                Matrix x = dataset.getX();
+                for(int i = 0; i < x.rowCount(); i++) {
+                    assertEquals(expected.predict(x.row(i)), actual.predict(x.row(i)));
+                }
+            }
+        }
+    }
 }
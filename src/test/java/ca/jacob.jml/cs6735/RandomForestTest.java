@@ -3,16 +3,24 @@ package ca.jacob.jml.cs6735;
 import ca.jacob.jml.Algorithm;
 import ca.jacob.jml.Dataset;
 import ca.jacob.jml.KFold;
+import ca.jacob.jml.Model;
+import ca.jacob.jml.math.Matrix;
 import ca.jacob.jml.tree.ID3;
+import ca.jacob.jml.ensemble.CompiledRandomForestModel;
 import ca.jacob.jml.ensemble.RandomForest;
+import ca.jacob.jml.ensemble.RandomForestModel;
 import ca.jacob.jml.Report;
 import ca.jacob.jml.math.Vector;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.ForkJoinPool;
+
 import static ca.jacob.cs6735.DataUtil.loadBreastCancerData;
 import static ca.jacob.cs6735.DataUtil.loadCarData;
+import static ca.jacob.cs6735.DataUtil.loadEColiData;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class RandomForestTest {
@@ -49,4 +57,95 @@ public class RandomForestTest {
         assertTrue(accuracies.mean() > 80);
         LOG.info("RandomForest accuracy: {}", accuracies.mean());
     }
+
+    @Test
+    public void testSeededForestIsSameOnAnyPool() throws Throwable {
+        Dataset dataset = loadCarData(RandomForestTest.class);
+        Matrix x = dataset.getX();
+
+        RandomForest rf = new RandomForest(new ID3(ID3.MAX_LEVEL_NONE), 20, 0.6, 42L);
+        rf.setPool(null);
+        Model expected = rf.fit(dataset);
+
+        ForkJoinPool[] pools = new ForkJoinPool[]{new ForkJoinPool(1), new ForkJoinPool(3), ForkJoinPool.commonPool()};
+        for(ForkJoinPool pool : pools) {
+            rf.setPool(pool);
+            Model actual = rf.fit(dataset);
+            for(int i = 0; i < x.rowCount(); i++) {
+                assertEquals(expected.predict(x.row(i)), actual.predict(x.row(i)));
+            }
+        }
+    }
+
+    @Test
+    public void testCompiledPredictsSame() throws Throwable {
+        Dataset[] datasets = new Dataset[]{loadCarData(RandomForestTest.class), loadEColiData(RandomForestTest.class)};
+        for(Dataset dataset : datasets) {
+            RandomForestModel forest = (RandomForestModel) new RandomForest(new ID3(ID3.MAX_LEVEL_NONE), 25, 0.6, 7L).fit(dataset);
+            CompiledRandomForestModel compiled = forest.compile();
+            assertEquals(25, compiled.treeCount());
+
+            Matrix x = dataset.getX();
+            int[] predictions = new int[x.rowCount()];
+            compiled.predict(x, predictions);
+            for(int i = 0; i < x.rowCount(); i++) {
+                assertEquals(forest.predict(x.row(i)), compiled.predict(x.row(i)));
+                assertEquals(predictions[i], compiled.predict(x.row(i)));
+            }
+        }
+    }
+
+    @Test
+    public void testOutOfBag() throws Throwable {
+        Dataset dataset = loadCarData(RandomForestTest.class);
+        int n = dataset.sampleCount();
+
+        RandomForest rf = new RandomForest(new ID3(ID3.MAX_LEVEL_NONE), 50, 0.6, 3L);
+        rf.setOutOfBag(true);
+        rf.setPool(null);
+        RandomForestModel forest = (RandomForestModel) rf.fit(dataset);
+
+        // drawing 0.6n of n samples with replacement leaves e^-0.6 of them out
+        for(int t = 0; t < 50; t++) {
+            int outOfBag = forest.getOutOfBag(t).cardinality();
+            assertTrue(outOfBag > 0.5 * n && outOfBag < 0.6 * n);
+        }
+        assertTrue(forest.getOutOfBagAccuracy() > 80);
+
+        // safety (5) and persons (3) decide most cars
+        double[] importances = forest.getImportances();
+        assertEquals(dataset.attributeCount(), importances.length);
+        for(int j = 0; j < importances.length; j++) {
+            assertTrue(importances[5] >= importances[j] || importances[3] >= importances[j]);
+        }
+
+        rf.setPool(new ForkJoinPool(3));
+        RandomForestModel parallel = (RandomForestModel) rf.fit(dataset);
+        assertEquals(forest.getOutOfBagAccuracy(), parallel.getOutOfBagAccuracy(), 0);
+        assertEquals(forest.getImportances()[5], parallel.getImportances()[5], 0);
+    }
+
+    @Test
+    public void testMaxFeatures() throws Throwable {
+        Dataset dataset = loadBreastCancerData(RandomForestTest.class);
+        Matrix x = dataset.getX();
+
+        ID3 id3 = new ID3(ID3.MAX_LEVEL_NONE);
+        id3.setMaxFeatures(ID3.SQRT_FEATURES);
+        RandomForest rf = new RandomForest(id3, 50, 0.6, 5L);
+        rf.setOutOfBag(true);
+        rf.setPool(null);
+        RandomForestModel expected = (RandomForestModel) rf.fit(dataset);
+        LOG.info("out-of-bag accuracy with sqrt features: {}", expected.getOutOfBagAccuracy());
+        assertTrue(expected.getOutOfBagAccuracy() > 95);
+
+        // every node splits its own generator, so subtrees grown on other threads draw the same attributes
+        id3.setPool(ForkJoinPool.commonPool());
+        id3.setSubtreeThreshold(1);
+        rf.setPool(new ForkJoinPool(3));
+        Model actual = rf.fit(dataset);
+        for(int i = 0; i < x.rowCount(); i++) {
+            assertEquals(expected.predict(x.row(i)), actual.predict(x.row(i)));
+        }
+    }
 }
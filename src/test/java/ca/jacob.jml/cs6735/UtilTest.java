@@ -1,6 +1,7 @@
 package ca.jacob.jml.cs6735;
 
 import ca.jacob.jml.Dataset;
+import ca.jacob.jml.WeightedSampler;
 import ca.jacob.jml.math.Matrix;
 import ca.jacob.jml.math.Vector;
 import junit.framework.Assert;
@@ -9,6 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
+import java.util.SplittableRandom;
 
 import static ca.jacob.jml.Dataset.DISCRETE;
 import static ca.jacob.jml.Util.generateIndices;
@@ -47,6 +49,29 @@ public class UtilTest {
         LOG.info("occurrences: {}", occurrences);
     }
 
+    @Test
+    public void testWeightedSampler() {
+        double[] weights = new double[]{0, 1, 3, 0, 4};
+        WeightedSampler sampler = new WeightedSampler(weights);
+        int[] indices = new int[80000];
+        sampler.sample(new SplittableRandom(1), indices);
+
+        int[] counts = new int[weights.length];
+        for(int i : indices) {
+            counts[i]++;
+        }
+        LOG.info("counts: {}", counts);
+        assertEquals(0, counts[0]);
+        assertEquals(0, counts[3]);
+        for(int i = 0; i < weights.length; i++) {
+            assertEquals(weights[i] / 8, (double) counts[i] / indices.length, 0.01);
+        }
+
+        Vector first = generateIndices(new Vector(weights), 100, new SplittableRandom(2));
+        Vector second = generateIndices(new Vector(weights), 100, new SplittableRandom(2));
+        assertEquals(first, second);
+    }
+
     @Test
     public void testLn() {
         assertEquals((double) 0, ln(1), DELTA);
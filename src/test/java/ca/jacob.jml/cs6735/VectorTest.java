@@ -5,6 +5,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static junit.framework.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
 
 public class VectorTest {
     private static final double DELTA = 1e-10;
@@ -100,4 +101,20 @@ public class VectorTest {
         Vector v = new Vector(new int[]{1, 2, 3});
         assertEquals(3, v.unique().length());
     }
+
+    @Test
+    public void testRemoveAndSubVector() {
+        v.remove(0);
+        assertEquals(new Vector(new int[]{2, 3, 4, 4}), v);
+        assertEquals(new Vector(new int[]{3, 4}), v.subVector(1, 3));
+    }
+
+    @Test
+    public void testInPlace() {
+        Vector v1 = new Vector(new int[]{1, 1, 1, 1, 1});
+        v1.addInPlace(v);
+        v1.mulInPlace(2);
+        assertEquals(new Vector(new int[]{4, 6, 8, 10, 10}), v1);
+        assertArrayEquals(new double[]{4, 6, 8, 10, 10}, v1.toArray(), DELTA);
+    }
 }
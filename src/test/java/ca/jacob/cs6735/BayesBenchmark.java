@@ -0,0 +1,167 @@
+package ca.jacob.cs6735;
+
+import ca.jacob.jml.Dataset;
+import ca.jacob.jml.bayes.Attribute;
+import ca.jacob.jml.bayes.ClassSummary;
+import ca.jacob.jml.bayes.CompiledNaiveBayesModel;
+import ca.jacob.jml.bayes.Continuous;
+import ca.jacob.jml.bayes.Discrete;
+import ca.jacob.jml.bayes.NaiveBayes;
+import ca.jacob.jml.bayes.NaiveBayesModel;
+import ca.jacob.jml.math.Matrix;
+import ca.jacob.jml.math.distribution.Density;
+import ca.jacob.jml.math.distribution.Gaussian;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static ca.jacob.cs6735.Benchmark.time;
+import static ca.jacob.cs6735.DataUtil.*;
+import static ca.jacob.jml.Dataset.CONTINUOUS;
+
+/**
+ * Naive Bayes: compiled predictions, accumulated fits and fitted densities.
+ */
+class BayesBenchmark {
+    /**
+     * Predicting every sample of letter-recognition (continuous) and mushroom (discrete) with the class summaries vs.
+     * the compiled log probabilities, on one thread.
+     */
+    static void bayes() throws Throwable {
+        Dataset[] datasets = new Dataset[]{loadLetterData(Benchmark.class), loadMushroomData(Benchmark.class)};
+        for(Dataset d : datasets) {
+            System.out.println("Naive Bayes predict on " + d);
+            final NaiveBayesModel model = (NaiveBayesModel) new NaiveBayes(new Gaussian()).fit(d);
+            final CompiledNaiveBayesModel compiled = model.compile();
+            model.setPool(null);
+            compiled.setPool(null);
+            final Matrix x = d.getX();
+
+            double summaries = time(new Runnable() {
+                @Override
+                public void run() {
+                    model.predict(x);
+                }
+            });
+
+            double logs = time(new Runnable() {
+                @Override
+                public void run() {
+                    compiled.predict(x);
+                }
+            });
+
+            System.out.println(String.format("summaries: %10.3f ms", summaries));
+            System.out.println(String.format("compiled:  %10.3f ms", logs));
+        }
+    }
+
+    /**
+     * Fitting Naive Bayes on letter-recognition (continuous) and mushroom (discrete) by splitting the dataset by class
+     * and summarizing every column vs. in one pass, on one thread.
+     */
+    static void bayesFit() throws Throwable {
+        Dataset[] datasets = new Dataset[]{loadLetterData(Benchmark.class), loadMushroomData(Benchmark.class)};
+        for(final Dataset d : datasets) {
+            System.out.println("Naive Bayes fit on " + d);
+            final NaiveBayes naiveBayes = new NaiveBayes(new Gaussian());
+            naiveBayes.setPool(null);
+
+            double split = time(new Runnable() {
+                @Override
+                public void run() {
+                    fitByClass(d);
+                }
+            });
+
+            double onePass = time(new Runnable() {
+                @Override
+                public void run() {
+                    naiveBayes.fit(d);
+                }
+            });
+
+            System.out.println(String.format("split by class: %10.3f ms", split));
+            System.out.println(String.format("one pass:       %10.3f ms", onePass));
+        }
+    }
+
+    /**
+     * The summaries of Naive Bayes built from a copy of every class and of every column, as it was fitted before
+     * NaiveBayesAccumulator.
+     */
+    private static List<ClassSummary> fitByClass(Dataset dataset) {
+        Map<Integer, Dataset> separated = dataset.splitByClass();
+        List<ClassSummary> summaries = new ArrayList<>();
+        for(Map.Entry<Integer, Dataset> entry : separated.entrySet()) {
+            Dataset d = entry.getValue();
+            List<Attribute> attributes = new ArrayList<>();
+            for(int j = 0; j < d.attributeCount(); j++) {
+                if(d.attributeType(j) == CONTINUOUS) {
+                    attributes.add(new Continuous(d.attribute(j), new Gaussian()));
+                } else {
+                    attributes.add(new Discrete(d.attribute(j), separated.size()));
+                }
+            }
+            summaries.add(new ClassSummary(entry.getKey(), (double) d.sampleCount() / dataset.sampleCount(), attributes));
+        }
+        return summaries;
+    }
+
+    /**
+     * Gaussian densities of a million values from the mean and standard deviation on every call vs. from a fitted
+     * density, one value at a time and in bulk.
+     */
+    static void density() {
+        final double[] xs = new double[1000000];
+        final double[] out = new double[xs.length];
+        Random random = new Random(1);
+        for(int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextGaussian() * 3 + 1;
+        }
+        final Gaussian gaussian = new Gaussian();
+        final Density density = gaussian.density(1, 3);
+        System.out.println("Gaussian densities of " + xs.length + " values");
+
+        double probability = time(new Runnable() {
+            @Override
+            public void run() {
+                for(int i = 0; i < xs.length; i++) {
+                    out[i] = gaussian.probability(xs[i], 1, 3);
+                }
+            }
+        });
+
+        double logProbability = time(new Runnable() {
+            @Override
+            public void run() {
+                for(int i = 0; i < xs.length; i++) {
+                    out[i] = gaussian.logProbability(xs[i], 1, 3);
+                }
+            }
+        });
+
+        double fitted = time(new Runnable() {
+            @Override
+            public void run() {
+                for(int i = 0; i < xs.length; i++) {
+                    out[i] = density.logDensity(xs[i]);
+                }
+            }
+        });
+
+        double bulk = time(new Runnable() {
+            @Override
+            public void run() {
+                density.logDensity(xs, out);
+            }
+        });
+
+        System.out.println(String.format("probability:     %10.3f ms", probability));
+        System.out.println(String.format("logProbability:  %10.3f ms", logProbability));
+        System.out.println(String.format("logDensity:      %10.3f ms", fitted));
+        System.out.println(String.format("bulk logDensity: %10.3f ms", bulk));
+    }
+}
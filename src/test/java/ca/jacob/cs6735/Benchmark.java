@@ -0,0 +1,107 @@
+package ca.jacob.cs6735;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Micro-benchmarks for the performance work on the library, one class per area. They live with the tests so that they
+ * are not shipped, run them from the test classpath with the names of the benchmarks to run, or nothing to run all of
+ * them.
+ */
+public class Benchmark {
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) throws Throwable {
+        List<String> names = new ArrayList<>(Arrays.asList(args));
+        boolean all = names.isEmpty();
+
+        if(all || names.contains("threshold")) {
+            TreeBenchmark.threshold();
+        }
+
+        if(all || names.contains("presorted")) {
+            TreeBenchmark.presorted();
+        }
+
+        if(all || names.contains("histogram")) {
+            TreeBenchmark.histogram();
+        }
+
+        if(all || names.contains("parallel")) {
+            TreeBenchmark.parallel();
+        }
+
+        if(all || names.contains("compiled")) {
+            TreeBenchmark.compiled();
+        }
+
+        if(all || names.contains("knn")) {
+            NeighborsBenchmark.knn();
+        }
+
+        if(all || names.contains("batchknn")) {
+            NeighborsBenchmark.batchKnn();
+        }
+
+        if(all || names.contains("hamming")) {
+            NeighborsBenchmark.hamming();
+        }
+
+        if(all || names.contains("lsh")) {
+            NeighborsBenchmark.lsh();
+        }
+
+        if(all || names.contains("bayes")) {
+            BayesBenchmark.bayes();
+        }
+
+        if(all || names.contains("bayesfit")) {
+            BayesBenchmark.bayesFit();
+        }
+
+        if(all || names.contains("density")) {
+            BayesBenchmark.density();
+        }
+
+        if(all || names.contains("forest")) {
+            EnsembleBenchmark.forest();
+        }
+
+        if(all || names.contains("compiledforest")) {
+            EnsembleBenchmark.compiledForest();
+        }
+
+        if(all || names.contains("oob")) {
+            EnsembleBenchmark.outOfBag();
+        }
+
+        if(all || names.contains("subspace")) {
+            EnsembleBenchmark.subspace();
+        }
+
+        if(all || names.contains("boosting")) {
+            EnsembleBenchmark.boosting();
+        }
+
+        if(all || names.contains("sampler")) {
+            SamplingBenchmark.sampler();
+        }
+    }
+
+    /**
+     * Mean milliseconds per run after warming up.
+     */
+    static double time(Runnable runnable) {
+        for(int i = 0; i < WARMUP_ITERATIONS; i++) {
+            runnable.run();
+        }
+
+        long start = System.nanoTime();
+        for(int i = 0; i < ITERATIONS; i++) {
+            runnable.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+}
@@ -0,0 +1,183 @@
+package ca.jacob.cs6735;
+
+import ca.jacob.jml.Algorithm;
+import ca.jacob.jml.Dataset;
+import ca.jacob.jml.KFold;
+import ca.jacob.jml.bayes.NaiveBayes;
+import ca.jacob.jml.ensemble.AdaBoost;
+import ca.jacob.jml.ensemble.CompiledRandomForestModel;
+import ca.jacob.jml.ensemble.RandomForest;
+import ca.jacob.jml.ensemble.RandomForestModel;
+import ca.jacob.jml.math.Matrix;
+import ca.jacob.jml.math.distribution.Gaussian;
+import ca.jacob.jml.tree.ID3;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static ca.jacob.cs6735.Benchmark.time;
+import static ca.jacob.cs6735.DataUtil.*;
+
+/**
+ * Random forests and boosting: concurrent training, compiled forests, out-of-bag estimates, random subspaces and
+ * weighted rounds.
+ */
+class EnsembleBenchmark {
+    /**
+     * Training a forest of 100 ID3 trees on car, one tree after the other vs. on pools of 1 thread and all cores.
+     */
+    static void forest() throws Throwable {
+        final Dataset d = loadCarData(Benchmark.class);
+        System.out.println("Random forest fit on " + d + " with " + Runtime.getRuntime().availableProcessors() + " cores");
+
+        ID3 id3 = new ID3(ID3.MAX_LEVEL_NONE);
+        id3.setPool(null);
+        final RandomForest forest = new RandomForest(id3, 100, 0.6, 1L);
+        forest.setPool(null);
+        double serial = time(new Runnable() {
+            @Override
+            public void run() {
+                forest.fit(d);
+            }
+        });
+        System.out.println(String.format("serial:     %10.3f ms", serial));
+
+        int[] parallelisms = new int[]{1, Runtime.getRuntime().availableProcessors()};
+        for(int parallelism : parallelisms) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            forest.setPool(pool);
+            double parallel = time(new Runnable() {
+                @Override
+                public void run() {
+                    forest.fit(d);
+                }
+            });
+            System.out.println(String.format("%2d threads: %10.3f ms", parallelism, parallel));
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Predicting every car sample with a forest of 100 trees of nodes vs. the arena, one sample at a time and in
+     * blocks of samples per tree, on one thread.
+     */
+    static void compiledForest() throws Throwable {
+        Dataset d = loadCarData(Benchmark.class);
+        System.out.println("Random forest predict on " + d);
+
+        final RandomForestModel forest = (RandomForestModel) new RandomForest(new ID3(ID3.MAX_LEVEL_NONE), 100, 0.6, 1L).fit(d);
+        final CompiledRandomForestModel compiled = forest.compile();
+        forest.setPool(null);
+        compiled.setPool(null);
+        final Matrix x = d.getX();
+
+        double nodes = time(new Runnable() {
+            @Override
+            public void run() {
+                forest.predict(x);
+            }
+        });
+
+        double single = time(new Runnable() {
+            @Override
+            public void run() {
+                for(int i = 0; i < x.rowCount(); i++) {
+                    compiled.predict(x.row(i));
+                }
+            }
+        });
+
+        double blocked = time(new Runnable() {
+            @Override
+            public void run() {
+                compiled.predict(x);
+            }
+        });
+
+        System.out.println(String.format("nodes:           %10.3f ms", nodes));
+        System.out.println(String.format("arena per row:   %10.3f ms", single));
+        System.out.println(String.format("arena per block: %10.3f ms", blocked));
+    }
+
+    /**
+     * Estimating the accuracy of a forest of 100 trees on car with 5-fold cross-validation vs. out of bag from one fit.
+     */
+    static void outOfBag() throws Throwable {
+        final Dataset d = loadCarData(Benchmark.class);
+        System.out.println("Random forest accuracy estimate on " + d);
+
+        final RandomForest forest = new RandomForest(new ID3(ID3.MAX_LEVEL_NONE), 100, 0.6, 1L);
+        final double[] accuracy = new double[1];
+        double kFold = time(new Runnable() {
+            @Override
+            public void run() {
+                accuracy[0] = new KFold(5).generateReport(forest, d).getAccuracies().mean();
+            }
+        });
+        System.out.println(String.format("5-fold:     %10.3f ms  accuracy %.2f%%", kFold, accuracy[0]));
+
+        forest.setOutOfBag(true);
+        double outOfBag = time(new Runnable() {
+            @Override
+            public void run() {
+                accuracy[0] = ((RandomForestModel) forest.fit(d)).getOutOfBagAccuracy();
+            }
+        });
+        System.out.println(String.format("out of bag: %10.3f ms  accuracy %.2f%%", outOfBag, accuracy[0]));
+    }
+
+    /**
+     * Training a forest of 5 trees on letter-recognition with every node evaluating all 16 attributes vs. 4 of them,
+     * serially, and the out-of-bag accuracy of each.
+     */
+    static void subspace() throws Throwable {
+        final Dataset d = loadLetterData(Benchmark.class);
+        System.out.println("Random forest fit on " + d);
+
+        int[] features = new int[]{ID3.ALL_FEATURES, ID3.SQRT_FEATURES};
+        String[] names = new String[]{"all", "sqrt"};
+        for(int f = 0; f < features.length; f++) {
+            ID3 id3 = new ID3(ID3.MAX_LEVEL_NONE);
+            id3.setPool(null);
+            id3.setMaxFeatures(features[f]);
+            final RandomForest forest = new RandomForest(id3, 5, 0.6, 1L);
+            forest.setPool(null);
+            double ms = time(new Runnable() {
+                @Override
+                public void run() {
+                    forest.fit(d);
+                }
+            });
+
+            forest.setOutOfBag(true);
+            double accuracy = ((RandomForestModel) forest.fit(d)).getOutOfBagAccuracy();
+            System.out.println(String.format("%-5s %10.3f ms  out-of-bag accuracy %.2f%%", names[f] + ":", ms, accuracy));
+        }
+    }
+
+    /**
+     * AdaBoost fit on letter-recognition with every round resampling the dataset vs. fitting the weights directly.
+     */
+    static void boosting() throws Throwable {
+        final Dataset d = loadLetterData(Benchmark.class);
+        System.out.println("AdaBoost fit on " + d);
+
+        Algorithm[] algorithms = new Algorithm[]{new ID3(2), new NaiveBayes(new Gaussian())};
+        for(Algorithm algorithm : algorithms) {
+            for(boolean resampling : new boolean[]{true, false}) {
+                final AdaBoost adaBoost = new AdaBoost(algorithm, 20, 1);
+                adaBoost.setResampling(resampling);
+                double ms = time(new Runnable() {
+                    @Override
+                    public void run() {
+                        adaBoost.fit(d);
+                    }
+                });
+
+                double accuracy = adaBoost.fit(d).accuracy(d);
+                System.out.println(String.format("%-12s %-10s %10.3f ms  training accuracy %.2f%%",
+                        algorithm.getClass().getSimpleName(), resampling ? "resampled:" : "weighted:", ms, accuracy));
+            }
+        }
+    }
+}
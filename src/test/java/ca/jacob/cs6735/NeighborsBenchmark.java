@@ -0,0 +1,164 @@
+package ca.jacob.cs6735;
+
+import ca.jacob.jml.Dataset;
+import ca.jacob.jml.Model;
+import ca.jacob.jml.math.Matrix;
+import ca.jacob.jml.math.Vector;
+import ca.jacob.jml.math.distance.Distance;
+import ca.jacob.jml.math.distance.Euclidean;
+import ca.jacob.jml.math.distance.Hamming;
+import ca.jacob.jml.neighbors.KNN;
+import ca.jacob.jml.neighbors.KNNModel;
+import ca.jacob.jml.neighbors.LSH;
+import ca.jacob.jml.neighbors.LSHModel;
+import ca.jacob.jml.neighbors.SpatialIndex;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static ca.jacob.cs6735.Benchmark.time;
+import static ca.jacob.cs6735.DataUtil.*;
+import static ca.jacob.jml.Util.range;
+
+/**
+ * Nearest neighbour queries: spatial indices, blocked batches, packed Hamming distances and LSH.
+ */
+class NeighborsBenchmark {
+    /**
+     * 1-NN queries on letter-recognition by scanning every training row vs. searching a KD-tree or a ball tree.
+     */
+    static void knn() throws Throwable {
+        Dataset d = loadLetterData(Benchmark.class);
+        final Dataset train = d.samples(range(0, 16000));
+        final Matrix queries = d.samples(range(16000, 16200)).getX();
+        System.out.println("KNN queries on " + train + " for " + queries.rowCount() + " samples");
+
+        int[] indices = new int[]{KNN.BRUTE_FORCE, KNN.KD_TREE, KNN.BALL_TREE};
+        String[] names = new String[]{"brute force", "KD-tree", "ball tree"};
+        for(int t = 0; t < indices.length; t++) {
+            final KNNModel model = (KNNModel) new KNN(1, new Euclidean(), indices[t]).fit(train);
+            model.setPool(null);
+            double ms = time(new Runnable() {
+                @Override
+                public void run() {
+                    model.predict(queries);
+                }
+            });
+
+            String pruning = "";
+            SpatialIndex index = model.getIndex();
+            if(index != null) {
+                pruning = String.format(", %d nodes, %.1f visited and %.1f pruned per query", index.getNodeCount(),
+                        (double) index.getVisitedNodes() / index.getQueryCount(), (double) index.getPrunedNodes() / index.getQueryCount());
+            }
+            System.out.println(String.format("%-12s %10.3f ms per query%s", names[t] + ":", ms / queries.rowCount(), pruning));
+        }
+    }
+
+    /**
+     * Throughput of 1-NN batch predictions on letter-recognition, one query at a time vs. the blocked scan on 1, 4 and
+     * all cores.
+     */
+    static void batchKnn() throws Throwable {
+        Dataset d = loadLetterData(Benchmark.class);
+        final Dataset train = d.samples(range(0, 16000));
+        final Matrix queries = d.samples(range(16000, 20000)).getX();
+        final KNNModel model = (KNNModel) new KNN(1, new Euclidean()).fit(train);
+        System.out.println("KNN batch on " + train + " for " + queries.rowCount() + " samples");
+
+        double single = time(new Runnable() {
+            @Override
+            public void run() {
+                for(int i = 0; i < queries.rowCount(); i++) {
+                    model.predict(queries.row(i));
+                }
+            }
+        });
+        System.out.println(String.format("one at a time: %10.0f queries/s", queries.rowCount() / single * 1000));
+
+        final int[] predictions = new int[queries.rowCount()];
+        int[] parallelisms = new int[]{1, 4, Runtime.getRuntime().availableProcessors()};
+        for(int parallelism : parallelisms) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            model.setPool(pool);
+            double blocked = time(new Runnable() {
+                @Override
+                public void run() {
+                    model.predict(queries, predictions);
+                }
+            });
+            System.out.println(String.format("%2d threads:    %10.0f queries/s", parallelism, queries.rowCount() / blocked * 1000));
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 1-NN queries on mushroom with the Hamming distance on Vectors vs. on the packed bits.
+     */
+    static void hamming() throws Throwable {
+        Dataset d = loadMushroomData(Benchmark.class);
+        final Dataset train = d.samples(range(0, 7000));
+        final Matrix queries = d.samples(range(7000, 7500)).getX();
+        System.out.println("KNN queries on " + train + " for " + queries.rowCount() + " samples");
+
+        final Hamming hamming = new Hamming();
+        Distance[] distances = new Distance[]{new Distance() {
+            @Override
+            public double distance(Vector one, Vector two) {
+                return hamming.distance(one, two);
+            }
+        }, hamming};
+        String[] names = new String[]{"vectors", "packed"};
+        for(int t = 0; t < distances.length; t++) {
+            final Model model = new KNN(1, distances[t]).fit(train);
+            double ms = time(new Runnable() {
+                @Override
+                public void run() {
+                    for(int i = 0; i < queries.rowCount(); i++) {
+                        model.predict(queries.row(i));
+                    }
+                }
+            });
+            System.out.println(String.format("%-8s %10.3f ms per query", names[t] + ":", ms / queries.rowCount()));
+        }
+    }
+
+    /**
+     * 1-NN queries on letter-recognition with the exact brute force scan vs. LSH with a few table and hash widths,
+     * with the share of the true neighbours every configuration finds.
+     */
+    static void lsh() throws Throwable {
+        Dataset d = loadLetterData(Benchmark.class);
+        final Dataset train = d.samples(range(0, 16000));
+        final Matrix queries = d.samples(range(16000, 17000)).getX();
+        System.out.println("LSH queries on " + train + " for " + queries.rowCount() + " samples");
+
+        final KNNModel exact = (KNNModel) new KNN(1, new Euclidean()).fit(train);
+        double ms = time(new Runnable() {
+            @Override
+            public void run() {
+                for(int i = 0; i < queries.rowCount(); i++) {
+                    exact.nearest(queries.row(i));
+                }
+            }
+        });
+        System.out.println(String.format("exact:              %10.0f queries/s  recall 1.000", queries.rowCount() / ms * 1000));
+
+        int[][] configurations = new int[][]{{4, 8}, {8, 8}, {8, 12}, {16, 12}, {16, 16}};
+        for(int[] configuration : configurations) {
+            final LSHModel model = (LSHModel) new LSH(1, new Euclidean(), configuration[0], configuration[1], 1L).fit(train);
+            ms = time(new Runnable() {
+                @Override
+                public void run() {
+                    for(int i = 0; i < queries.rowCount(); i++) {
+                        model.approximate(queries.row(i));
+                    }
+                }
+            });
+            double candidates = model.getMeanCandidates();
+            double fallbacks = 100.0 * model.getFallbackCount() / model.getQueryCount();
+            double recall = model.recall(queries);
+            System.out.println(String.format("%2d tables %2d bits: %10.0f queries/s  recall %.3f  %7.1f candidates  %.1f%% fallbacks",
+                    configuration[0], configuration[1], queries.rowCount() / ms * 1000, recall, candidates, fallbacks));
+        }
+    }
+}
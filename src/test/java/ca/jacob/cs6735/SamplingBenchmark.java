@@ -0,0 +1,65 @@
+package ca.jacob.cs6735;
+
+import ca.jacob.jml.WeightedSampler;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static ca.jacob.cs6735.Benchmark.time;
+
+/**
+ * Drawing weighted indices.
+ */
+class SamplingBenchmark {
+    /**
+     * Drawing n indices from n random weights with the alias table vs. a cumulative scan for every index, as
+     * Util.generateIndices used to.
+     */
+    static void sampler() {
+        Random random = new Random(1);
+        int[] sizes = new int[]{1000, 20000};
+        for(int n : sizes) {
+            final double[] weights = new double[n];
+            for(int i = 0; i < n; i++) {
+                weights[i] = random.nextDouble();
+            }
+            final int[] indices = new int[n];
+
+            double alias = time(new Runnable() {
+                @Override
+                public void run() {
+                    new WeightedSampler(weights).sample(new SplittableRandom(1), indices);
+                }
+            });
+            double scan = time(new Runnable() {
+                @Override
+                public void run() {
+                    cumulativeScan(weights, indices, new SplittableRandom(1));
+                }
+            });
+
+            System.out.println(String.format("n = %d", n));
+            System.out.println(String.format("alias:   %10.3f ms", alias));
+            System.out.println(String.format("scan:    %10.3f ms", scan));
+            System.out.println(String.format("speedup: %10.1fx", scan / alias));
+        }
+    }
+
+    private static void cumulativeScan(double[] weights, int[] indices, SplittableRandom random) {
+        double sum = 0;
+        for(double weight : weights) {
+            sum += weight;
+        }
+        for(int k = 0; k < indices.length; k++) {
+            double rand = random.nextDouble();
+            double cumulativeProbability = 0;
+            for(int j = 0; j < weights.length; j++) {
+                cumulativeProbability += weights[j] / sum;
+                if(rand <= cumulativeProbability) {
+                    indices[k] = j;
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package ca.jacob.cs6735;
+
+import ca.jacob.jml.Algorithm;
+import ca.jacob.jml.Dataset;
+import ca.jacob.jml.KFold;
+import ca.jacob.jml.math.Matrix;
+import ca.jacob.jml.math.Tuple;
+import ca.jacob.jml.math.Vector;
+import ca.jacob.jml.tree.CompiledID3Model;
+import ca.jacob.jml.tree.HistogramID3;
+import ca.jacob.jml.tree.ID3;
+import ca.jacob.jml.tree.ID3Model;
+import ca.jacob.jml.tree.PresortedID3;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static ca.jacob.cs6735.Benchmark.time;
+import static ca.jacob.cs6735.DataUtil.*;
+import static ca.jacob.jml.Util.calculateWeightedEntropy;
+
+/**
+ * Fitting and predicting decision trees: threshold search, presorting, histograms, parallel growth and compiled trees.
+ */
+class TreeBenchmark {
+    /**
+     * Best threshold of every letter-recognition attribute with the sweep in Dataset vs. splitting at every pivot.
+     */
+    static void threshold() throws Throwable {
+        final Dataset d = loadLetterData(Benchmark.class);
+        System.out.println("threshold search on " + d);
+
+        double sweep = time(new Runnable() {
+            @Override
+            public void run() {
+                for(int j = 0; j < d.attributeCount(); j++) {
+                    d.splitByContinuousAttribute(j);
+                }
+            }
+        });
+
+        double exhaustive = time(new Runnable() {
+            @Override
+            public void run() {
+                for(int j = 0; j < d.attributeCount(); j++) {
+                    splitAtEveryPivot(d, j);
+                }
+            }
+        });
+
+        for(int j = 0; j < d.attributeCount(); j++) {
+            double expected = splitAtEveryPivot(d, j);
+            double actual = d.splitByContinuousAttribute(j).first();
+            if(expected != actual) {
+                System.out.println("attribute " + j + ": pivot " + actual + " != " + expected);
+            }
+        }
+
+        System.out.println(String.format("sweep:      %10.3f ms", sweep));
+        System.out.println(String.format("exhaustive: %10.3f ms", exhaustive));
+        System.out.println(String.format("speedup:    %10.1fx", exhaustive / sweep));
+    }
+
+    /**
+     * Fitting ID3 on letter-recognition with per-node sorting vs. sorting once at the root.
+     */
+    static void presorted() throws Throwable {
+        final Dataset d = loadLetterData(Benchmark.class);
+        System.out.println("ID3 fit on " + d);
+
+        double id3 = time(new Runnable() {
+            @Override
+            public void run() {
+                new ID3(ID3.MAX_LEVEL_NONE, 1).fit(d);
+            }
+        });
+
+        double presorted = time(new Runnable() {
+            @Override
+            public void run() {
+                new PresortedID3(ID3.MAX_LEVEL_NONE, 1).fit(d);
+            }
+        });
+
+        System.out.println(String.format("ID3:          %10.3f ms", id3));
+        System.out.println(String.format("PresortedID3: %10.3f ms", presorted));
+    }
+
+    /**
+     * Fit time and 5-fold accuracy of ID3 vs. histogram-binned ID3 on letter-recognition and ecoli.
+     */
+    static void histogram() throws Throwable {
+        Dataset[] datasets = new Dataset[]{loadLetterData(Benchmark.class), loadEColiData(Benchmark.class)};
+        Algorithm[] algorithms = new Algorithm[]{
+                new ID3(ID3.MAX_LEVEL_NONE, 1),
+                new HistogramID3(ID3.MAX_LEVEL_NONE, 1),
+                new HistogramID3(ID3.MAX_LEVEL_NONE, 1, 16),
+                new HistogramID3(ID3.MAX_LEVEL_NONE, 1, 4)};
+
+        for(final Dataset d : datasets) {
+            System.out.println("ID3 fit on " + d);
+            for(final Algorithm a : algorithms) {
+                double fit = time(new Runnable() {
+                    @Override
+                    public void run() {
+                        a.fit(d);
+                    }
+                });
+                double accuracy = new KFold(5).generateReport(a, d).accuracy();
+                System.out.println(String.format("%-70s %10.3f ms %8.3f %%", a, fit, accuracy));
+            }
+        }
+    }
+
+    /**
+     * Fitting ID3 on letter-recognition serially vs. on 1, 4 and all cores.
+     */
+    static void parallel() throws Throwable {
+        final Dataset d = loadLetterData(Benchmark.class);
+        System.out.println("ID3 fit on " + d);
+
+        final ID3 serial = new ID3(ID3.MAX_LEVEL_NONE, 1);
+        serial.setPool(null);
+        System.out.println(String.format("serial:     %10.3f ms", time(new Runnable() {
+            @Override
+            public void run() {
+                serial.fit(d);
+            }
+        })));
+
+        int[] parallelisms = new int[]{1, 4, Runtime.getRuntime().availableProcessors()};
+        for(int parallelism : parallelisms) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            final ID3 parallel = new ID3(ID3.MAX_LEVEL_NONE, 1);
+            parallel.setPool(pool);
+            System.out.println(String.format("%2d threads: %10.3f ms", parallelism, time(new Runnable() {
+                @Override
+                public void run() {
+                    parallel.fit(d);
+                }
+            })));
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Predicting every letter-recognition sample with the tree of nodes vs. the flattened tree.
+     */
+    static void compiled() throws Throwable {
+        final Dataset d = loadLetterData(Benchmark.class);
+        System.out.println("ID3 predict on " + d);
+
+        final ID3Model model = (ID3Model) new ID3(ID3.MAX_LEVEL_NONE, 1).fit(d);
+        final CompiledID3Model compiled = model.compile();
+        final Matrix x = d.getX();
+
+        double nodes = time(new Runnable() {
+            @Override
+            public void run() {
+                model.predict(x);
+            }
+        });
+
+        double flattened = time(new Runnable() {
+            @Override
+            public void run() {
+                compiled.predict(x);
+            }
+        });
+
+        System.out.println(String.format("nodes:     %10.3f ms", nodes));
+        System.out.println(String.format("flattened: %10.3f ms", flattened));
+    }
+
+    private static double splitAtEveryPivot(Dataset d, int attribute) {
+        Vector c = d.attribute(attribute);
+        c.sort();
+
+        double bestPivot = Double.NaN;
+        double minimumEntropy = 0;
+        for (int i = 0; i < c.length()-1; i++) {
+            if(c.at(i) == c.at(i+1)) {
+                continue;
+            }
+
+            double pivot = (c.at(i) + c.at(i+1)) / 2;
+            Tuple<Dataset, Dataset> subsets = d.splitAt(attribute, pivot);
+
+            double entropy = calculateWeightedEntropy(subsets);
+            if(Double.isNaN(bestPivot) || entropy < minimumEntropy) {
+                bestPivot = pivot;
+                minimumEntropy = entropy;
+            }
+        }
+        return bestPivot;
+    }
+}